@@ -0,0 +1,203 @@
+package codes.writeonce.launcher;
+
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static codes.writeonce.launcher.Utils.getTmpPath;
+import static codes.writeonce.launcher.Utils.parseSize;
+import static codes.writeonce.launcher.ZipExtractorBenchmark.getWorkPath;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+final class ArchiveWorkloads {
+
+    private static final int HUGE_FILES = 4;
+
+    private static final int XZ_PRESET = 1;
+
+    @Nonnull
+    static Path getArchive(
+            @Nonnull String format,
+            @Nonnull String workload,
+            @Nonnull String archiveSize,
+            @Nonnull String xzBlockSize
+    ) throws IOException {
+
+        final var blockSize = format.equals("tar.xz") ? parseSize(xzBlockSize) : 0;
+        final var path = getWorkPath().resolve(workload + "-" + archiveSize
+                                               + (blockSize == 0 ? "" : "-" + xzBlockSize) + "." + format);
+        if (!Files.exists(path)) {
+            generate(path, format, workload, parseSize(archiveSize), blockSize);
+        }
+        return path;
+    }
+
+    @Nonnull
+    static Extractor getExtractor(@Nonnull String format, int writerThreads, int parallelism, int xzThreads) {
+        return switch (format) {
+            case "tar.gz" -> new TarGzExtractor(writerThreads, 0x4000000);
+            case "tar.xz" -> new TarXzExtractor(writerThreads, 0x4000000, xzThreads);
+            case "tar.bz2" -> new TarBz2Extractor(writerThreads, 0x4000000);
+            case "zip" -> new ZipExtractor(parallelism);
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+
+    private static void generate(
+            @Nonnull Path path,
+            @Nonnull String format,
+            @Nonnull String workload,
+            long size,
+            long xzBlockSize
+    ) throws IOException {
+
+        final var tmpPath = getTmpPath(path);
+        final var random = new Random(size);
+        final var bytes = new byte[0x400000];
+        var written = 0L;
+        var index = 0;
+
+        try (var out = newArchiveOutputStream(tmpPath, format, xzBlockSize)) {
+            while (written < size) {
+                final var length = Math.min(size - written, switch (workload) {
+                    case "small" -> 0x100 + random.nextInt(0x3F00);
+                    case "huge" -> size / HUGE_FILES + 1;
+                    case "mixed" -> 0x1000L << random.nextInt(11);
+                    default -> throw new IllegalArgumentException(workload);
+                });
+                final var compressible = index % 2 == 1;
+                final var name = "dir" + index % 64 + "/file" + index + (compressible ? ".txt" : ".bin");
+                putEntry(out, format, name, length);
+                var remained = length;
+                while (remained > 0) {
+                    final var chunk = (int) Math.min(remained, bytes.length);
+                    if (compressible) {
+                        for (var i = 0; i < chunk; i++) {
+                            bytes[i] = (byte) ('a' + random.nextInt(8));
+                        }
+                    } else {
+                        random.nextBytes(bytes);
+                    }
+                    out.write(bytes, 0, chunk);
+                    remained -= chunk;
+                }
+                out.closeArchiveEntry();
+                written += length;
+                index++;
+            }
+            out.finish();
+        }
+
+        Files.move(tmpPath, path, ATOMIC_MOVE);
+    }
+
+    @Nonnull
+    private static ArchiveOutputStream newArchiveOutputStream(
+            @Nonnull Path path,
+            @Nonnull String format,
+            long xzBlockSize
+    ) throws IOException {
+
+        if (format.equals("zip")) {
+            final var out = new ZipArchiveOutputStream(path.toFile());
+            out.setUseZip64(Zip64Mode.AsNeeded);
+            return out;
+        }
+
+        final OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(path), 0x10000);
+        final OutputStream out = switch (format) {
+            case "tar.gz" -> new GzipCompressorOutputStream(fileOut);
+            case "tar.xz" -> xzBlockSize == 0
+                    ? new XZCompressorOutputStream(fileOut, XZ_PRESET)
+                    : new BlockXZOutputStream(fileOut, xzBlockSize);
+            case "tar.bz2" -> new BZip2CompressorOutputStream(fileOut);
+            default -> throw new IllegalArgumentException(format);
+        };
+        final var tarOut = new TarArchiveOutputStream(out, UTF_8.name());
+        tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        return tarOut;
+    }
+
+    private static void putEntry(
+            @Nonnull ArchiveOutputStream out,
+            @Nonnull String format,
+            @Nonnull String name,
+            long length
+    ) throws IOException {
+
+        if (format.equals("zip")) {
+            final var entry = new ZipArchiveEntry(name);
+            entry.setMethod(name.endsWith(".bin") ? ZipArchiveEntry.STORED : ZipArchiveEntry.DEFLATED);
+            entry.setUnixMode(0100644);
+            out.putArchiveEntry(entry);
+        } else {
+            final var entry = new TarArchiveEntry(name);
+            entry.setSize(length);
+            entry.setMode(0100644);
+            out.putArchiveEntry(entry);
+        }
+    }
+
+    private static class BlockXZOutputStream extends OutputStream {
+
+        @Nonnull
+        private final XZOutputStream out;
+
+        private final long blockSize;
+
+        private long remained;
+
+        private BlockXZOutputStream(@Nonnull OutputStream out, long blockSize) throws IOException {
+            this.out = new XZOutputStream(out, new LZMA2Options(XZ_PRESET));
+            this.blockSize = blockSize;
+            this.remained = blockSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final var n = (int) Math.min(len, remained);
+                out.write(b, off, n);
+                off += n;
+                len -= n;
+                remained -= n;
+                if (remained == 0) {
+                    out.endBlock();
+                    remained = blockSize;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private ArchiveWorkloads() {
+        // empty
+    }
+}
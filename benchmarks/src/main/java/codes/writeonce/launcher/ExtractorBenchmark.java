@@ -0,0 +1,113 @@
+package codes.writeonce.launcher;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static codes.writeonce.launcher.Utils.deleteRecursively;
+import static codes.writeonce.launcher.ZipExtractorBenchmark.getWorkPath;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExtractorBenchmark {
+
+    @Param({"tar.gz", "tar.xz", "tar.bz2", "zip"})
+    public String format;
+
+    @Param({"small", "huge", "mixed"})
+    public String workload;
+
+    @Param({"256M"})
+    public String archiveSize;
+
+    @Param({"0"})
+    public int writerThreads;
+
+    @Param({"1"})
+    public int parallelism;
+
+    @Param({"0"})
+    public String xzBlockSize;
+
+    @Param({"1"})
+    public int xzThreads;
+
+    private Path archivePath;
+
+    private Path destinationPath;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        archivePath = ArchiveWorkloads.getArchive(format, workload, archiveSize, xzBlockSize);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        destinationPath = Files.createTempDirectory(getWorkPath(), "out");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        deleteRecursively(destinationPath);
+    }
+
+    @Benchmark
+    public void extract(@Nonnull ExtractedCounters counters)
+            throws IOException, ExecutionException, InterruptedException {
+        ArchiveWorkloads.getExtractor(format, writerThreads, parallelism, xzThreads)
+                .extract(new FileArchiveSource(archivePath), destinationPath, counters);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ExtractedCounters implements ExtractionListener {
+
+        public double megabytes;
+
+        public long files;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+            files = 0;
+        }
+
+        @Override
+        public synchronized void fileExtracted(
+                @Nonnull Path path,
+                long size,
+                @Nonnull Set<PosixFilePermission> permissions,
+                @Nonnull FileTime lastModified,
+                @Nullable byte[] digest
+        ) {
+            megabytes += size / (double) 0x100000;
+            files++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package codes.writeonce.launcher;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetadataBenchmark {
+
+    @Param({"100", "10000"})
+    public int dependencies;
+
+    private byte[] metaBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        final var dependencyList = new StringBuilder();
+        for (var i = 0; i < dependencies; i++) {
+            dependencyList.append("org/example/artifact").append(i).append("/1.0.").append(i)
+                    .append("/artifact").append(i).append("-1.0.").append(i).append(".jar\n");
+        }
+
+        final var systemProperties = new StringBuilder();
+        for (var i = 0; i < dependencies; i++) {
+            systemProperties.append("system.property").append(i).append("=value").append(i).append('\n');
+        }
+
+        final var out = new ByteArrayOutputStream();
+        try (var xzOut = new XZCompressorOutputStream(out);
+             var tarOut = new TarArchiveOutputStream(xzOut, UTF_8.name())) {
+            putEntry(tarOut, "dependencies", dependencyList.toString());
+            putEntry(tarOut, "commandArguments", "-cp ${classpath} ${systemProperties} Main ${arguments}");
+            putEntry(tarOut, "environment.properties", "LANG=C.UTF-8\n");
+            putEntry(tarOut, "system.properties", systemProperties.toString());
+            putEntry(tarOut, "attachments.properties", "");
+        }
+        metaBytes = out.toByteArray();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+
+        var total = 0L;
+        try (var fileInputStream = new ByteArrayInputStream(metaBytes);
+             var xzInputStream = new XZCompressorInputStream(fileInputStream);
+             var tarInputStream = new TarArchiveInputStream(xzInputStream, UTF_8.name())) {
+            while (true) {
+                final var entry = tarInputStream.getNextTarEntry();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.isFile()) {
+                    total += AbstractMain.read(tarInputStream, entry).length;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static void putEntry(@Nonnull TarArchiveOutputStream out, @Nonnull String name, @Nonnull String content)
+            throws IOException {
+
+        final var bytes = content.getBytes(UTF_8);
+        final var entry = new TarArchiveEntry(name);
+        entry.setSize(bytes.length);
+        out.putArchiveEntry(entry);
+        out.write(bytes);
+        out.closeArchiveEntry();
+    }
+}
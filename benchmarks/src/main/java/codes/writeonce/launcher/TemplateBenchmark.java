@@ -0,0 +1,65 @@
+package codes.writeonce.launcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TemplateBenchmark {
+
+    @Param({"1000", "10000"})
+    public int properties;
+
+    @Param({"1", "16", "256"})
+    public int depth;
+
+    private Properties configProperties;
+
+    private HostFacts hostFacts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configProperties = new Properties();
+        for (var i = 0; i < properties; i++) {
+            configProperties.setProperty("property" + i, i % depth == 0
+                    ? "/opt/value" + i
+                    : "${property" + (i - 1) + "}/segment" + i);
+        }
+        hostFacts = HostFacts.read(configProperties);
+    }
+
+    @Benchmark
+    public Properties resolvePropertiesRecursive() throws IOException {
+        // no attachment properties, so the repository is never consulted
+        return AbstractMain.resolvePropertiesRecursive(
+                configProperties,
+                new Properties(),
+                null,
+                new HashMap<>(),
+                new HashMap<>(),
+                "time",
+                hostFacts,
+                new PlanInputs(),
+                new LaunchTrace("benchmark")
+        );
+    }
+}
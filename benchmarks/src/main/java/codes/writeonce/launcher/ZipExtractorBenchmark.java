@@ -0,0 +1,121 @@
+package codes.writeonce.launcher;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static codes.writeonce.launcher.Utils.deleteRecursively;
+import static codes.writeonce.launcher.Utils.getTmpPath;
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class ZipExtractorBenchmark {
+
+    @Param({"2G"})
+    public String archiveSize;
+
+    @Param({"zip", "mapped"})
+    public String extractor;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path archivePath;
+
+    private Path destinationPath;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        archivePath = getWorkPath().resolve("mixed-" + archiveSize + ".zip");
+        if (!Files.exists(archivePath)) {
+            generate(archivePath, parseSize(archiveSize));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        destinationPath = Files.createTempDirectory(getWorkPath(), "out");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        deleteRecursively(destinationPath);
+    }
+
+    @Benchmark
+    public void extract() throws IOException, ExecutionException, InterruptedException {
+        final var zipExtractor = switch (extractor) {
+            case "zip" -> new ZipExtractor(parallelism);
+            case "mapped" -> new MappedZipExtractor(parallelism);
+            default -> throw new IllegalArgumentException(extractor);
+        };
+        zipExtractor.extract(new FileArchiveSource(archivePath), destinationPath);
+    }
+
+    @Nonnull
+    static Path getWorkPath() throws IOException {
+        return Files.createDirectories(Path.of(System.getProperty("java.io.tmpdir"), "launcher-benchmarks"));
+    }
+
+    private static void generate(@Nonnull Path path, long size) throws IOException {
+
+        final var tmpPath = getTmpPath(path);
+        final var random = new Random(size);
+        final var bytes = new byte[0x400000];
+        var written = 0L;
+        var index = 0;
+
+        try (var out = new ZipArchiveOutputStream(tmpPath.toFile())) {
+            out.setUseZip64(Zip64Mode.AsNeeded);
+            while (written < size) {
+                final var stored = index % 2 == 0;
+                final var length = (int) Math.min(size - written, 0x1000 << random.nextInt(11));
+                final var name = "dir" + index % 64 + "/file" + index + (stored ? ".jar" : ".txt");
+                final var entry = new ZipArchiveEntry(name);
+                entry.setMethod(stored ? ZipArchiveEntry.STORED : ZipArchiveEntry.DEFLATED);
+                entry.setUnixMode(0100644);
+                out.putArchiveEntry(entry);
+                if (stored) {
+                    random.nextBytes(bytes);
+                } else {
+                    for (var i = 0; i < length; i++) {
+                        bytes[i] = (byte) ('a' + random.nextInt(8));
+                    }
+                }
+                out.write(bytes, 0, length);
+                out.closeArchiveEntry();
+                written += length;
+                index++;
+            }
+        }
+
+        Files.move(tmpPath, path, ATOMIC_MOVE);
+    }
+}
@@ -3,4 +3,13 @@
 export JAVA_HOME="$HOME/launcher/jdk/jdk-17.0.2"
 export PATH="$JAVA_HOME/bin:$PATH"
 export LDPATH="$JAVA_HOME/lib/:$JAVA_HOME/lib/server/:$LDPATH"
+SOCKET="$HOME/launcher/run/launcher.sock"
+if [ -S "$SOCKET" ] && command -v socat > /dev/null ; then
+  { printf '%s\0' prepare "$#" "$@" ; authbind --deep env -0 ; } | socat -t 2147483647 - "UNIX-CONNECT:$SOCKET" 2> /dev/null |
+    awk 'BEGIN { code = 255 } { if (code == 255) code = 1 } /^\001exit=/ { code = substr($0, 7) + 0; next } { print } END { exit code }'
+  STATUS=$?
+  if [ $STATUS -ne 255 ] ; then
+    exit $STATUS
+  fi
+fi
 authbind --deep $JAVA_HOME/bin/java -cp "$HOME/launcher/lib/*" codes.writeonce.launcher.DryRunMain "$@"
@@ -1,12 +1,26 @@
 package codes.writeonce.launcher;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToLongFunction;
 
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
 import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
 import static java.nio.file.attribute.PosixFilePermission.GROUP_WRITE;
@@ -19,6 +33,12 @@ import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
 
 public abstract class AbstractExtractor implements Extractor {
 
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int CHUNK_MAX_ENTRIES = 256;
+
+    private static final long CHUNK_MAX_BYTES = 0x1000000;
+
     private static final PosixFilePermission[] PERMISSIONS = {
             OTHERS_EXECUTE,
             OTHERS_WRITE,
@@ -74,4 +94,144 @@ public abstract class AbstractExtractor implements Extractor {
         }
         return permissions;
     }
+
+    protected static int toMode(@Nonnull Set<PosixFilePermission> permissions) {
+
+        var mode = 0;
+        for (int i = 0; i < PERMISSIONS.length; i++) {
+            if (permissions.contains(PERMISSIONS[i])) {
+                mode |= 1 << i;
+            }
+        }
+        return mode;
+    }
+
+    @Nullable
+    protected static MessageDigest newDigest(@Nonnull ExtractionListener listener) {
+        if (!listener.isDigestRequired()) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static void completeFile(
+            @Nonnull ExtractionListener listener,
+            @Nonnull Path path,
+            long size,
+            @Nonnull Set<PosixFilePermission> permissions,
+            @Nonnull FileTime lastModified,
+            @Nullable MessageDigest digest,
+            boolean posix
+    ) throws IOException {
+
+        if (posix) {
+            Files.setPosixFilePermissions(path, permissions);
+        }
+        Files.setLastModifiedTime(path, lastModified);
+        listener.fileExtracted(path, size, permissions, lastModified, digest == null ? null : digest.digest());
+    }
+
+    protected static void applyDeferred(
+            @Nonnull TreeMap<Path, DirInfo> dirs,
+            @Nonnull TreeMap<Path, SymlinkInfo> symlinks,
+            @Nonnull Set<Path> createdDirs,
+            boolean posix,
+            @Nonnull ExtractionListener listener
+    ) throws IOException {
+
+        for (final var entry : dirs.descendingMap().entrySet()) {
+            final var path = entry.getKey();
+            final var info = entry.getValue();
+            if (posix) {
+                Files.setPosixFilePermissions(path, info.permissions);
+            }
+            Files.setLastModifiedTime(path, info.time);
+            listener.directoryExtracted(path, info.permissions, info.time);
+        }
+
+        for (final var entry : symlinks.descendingMap().entrySet()) {
+            final var path = entry.getKey();
+            final var info = entry.getValue();
+            final var parent = path.getParent();
+            if (createdDirs.add(parent)) {
+                Files.createDirectories(parent);
+            }
+            Files.createSymbolicLink(path, info.path);
+            Files.getFileAttributeView(path, BasicFileAttributeView.class, NOFOLLOW_LINKS)
+                    .setTimes(info.time, null, null);
+            listener.symlinkExtracted(path, info.path);
+        }
+    }
+
+    protected static <T> void writeChunked(
+            @Nonnull List<T> files,
+            @Nonnull ToLongFunction<T> weight,
+            int parallelism,
+            @Nonnull ChunkWriter<T> writer
+    ) throws IOException {
+
+        final var chunks = new ArrayList<RecursiveAction>();
+        var chunk = new ArrayList<T>();
+        var chunkBytes = 0L;
+        for (final var file : files) {
+            chunk.add(file);
+            chunkBytes += Math.max(0, weight.applyAsLong(file));
+            if (chunk.size() == CHUNK_MAX_ENTRIES || chunkBytes >= CHUNK_MAX_BYTES) {
+                chunks.add(new ChunkTask<>(chunk, writer));
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(new ChunkTask<>(chunk, writer));
+        }
+
+        final var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(chunks);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    protected interface ChunkWriter<T> {
+
+        void write(@Nonnull List<T> chunk) throws IOException;
+    }
+
+    private static class ChunkTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Nonnull
+        private final List<T> files;
+
+        @Nonnull
+        private final ChunkWriter<T> writer;
+
+        public ChunkTask(@Nonnull List<T> files, @Nonnull ChunkWriter<T> writer) {
+            this.files = files;
+            this.writer = writer;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                writer.write(files);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
@@ -14,247 +14,496 @@ import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 
 import javax.annotation.Nonnull;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
 
+import static codes.writeonce.launcher.AttachmentCache.DIGEST_SUFFIX;
+import static codes.writeonce.launcher.AttachmentCache.checkDigestValue;
+import static codes.writeonce.launcher.AttachmentCache.getCachePath;
+import static codes.writeonce.launcher.Utils.allOfFailFast;
+import static codes.writeonce.launcher.Utils.getBooleanProperty;
 import static codes.writeonce.launcher.Utils.getCommandPath;
 import static codes.writeonce.launcher.Utils.getConfigProperties;
-import static codes.writeonce.launcher.Utils.getPid;
 import static codes.writeonce.launcher.Utils.getPidPath;
 import static codes.writeonce.launcher.Utils.getTmpPath;
+import static codes.writeonce.launcher.Utils.isAlive;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
-import static java.util.Objects.requireNonNullElse;
 import static java.util.stream.Collectors.joining;
 
 public abstract class AbstractMain {
 
     private static final String ENV_PREFIX = "env.";
 
-    private static boolean isAlive(@Nonnull Path pidPath) throws IOException {
+    private static final Map<Path, LaunchPlan> PLANS = new ConcurrentHashMap<>();
 
-        final var pid = getPid(pidPath);
-        if (pid == null) {
-            return false;
-        }
-        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    @Nonnull
+    private final Map<String, String> environment;
+
+    protected AbstractMain() {
+        this(System.getenv());
     }
 
-    @Nonnull
-    private static Extractor getExtractor(@Nonnull String fileName) {
-
-        if (fileName.endsWith(".tar.gz")) {
-            return new TarGzExtractor();
-        } else if (fileName.endsWith(".tar.xz")) {
-            return new TarXzExtractor();
-        } else if (fileName.endsWith(".tar.bz2")) {
-            return new TarBz2Extractor();
-        } else if (fileName.endsWith(".zip")) {
-            return new ZipExtractor();
-        } else {
-            throw new IllegalArgumentException();
-        }
+    protected AbstractMain(@Nonnull Map<String, String> environment) {
+        this.environment = requireNonNull(environment);
     }
 
     @Nonnull
-    private static Path getCachePath(@Nonnull Repository repository, @Nonnull Resource resource) {
-        return repository.launcherDir.resolve("cache").resolve(repository.repoPath.relativize(resource.getPath()));
+    protected Map<String, String> getEnvironment() {
+        return environment;
     }
 
     protected void run(String[] args) throws IOException, ExecutionException, InterruptedException {
-
-        final var profile = args[0];
-        final var command = args[1];
-
         try (var repository = new Repository()) {
+            run(repository, args, System.out);
+        }
+    }
 
-            final var pidPath = getPidPath(repository, profile, command);
+    protected void run(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
 
-            if (AbstractMain.isAlive(pidPath)) {
-                throw new IllegalStateException();
+        var validate = false;
+        var index = 0;
+        while (index < args.length && args[index].startsWith("--")) {
+            if (args[index].equals("--validate")) {
+                validate = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[index]);
             }
+            index++;
+        }
 
-            final var configPath = repository.launcherDir.resolve("profiles").resolve(profile).resolve("conf")
-                    .resolve("config.properties");
+        final var profile = args[index];
+        final var command = args[index + 1];
 
-            final var commandsPath = repository.launcherDir.resolve("profiles").resolve(profile).resolve("commands");
-            final var cmdPath = commandsPath.resolve(command);
-            final var cmd = Files.readString(cmdPath, UTF_8).trim();
+        final var configProperties = getCommandConfigProperties(repository, profile, command);
 
-            var configProperties = getConfigProperties(configPath);
+        try (var attachmentCache = new AttachmentCache(repository, configProperties,
+                validate || getBooleanProperty(configProperties, "launcher.cache.validate", false))) {
+            start(prepare(repository, attachmentCache, configProperties, profile, command,
+                    asList(args).subList(index + 2, args.length)), out);
+        }
+    }
 
-            final var cmdConfPath = commandsPath.resolve(command + ".properties");
-            if (Files.exists(cmdConfPath)) {
-                final var cmdConfigProperties = getConfigProperties(cmdConfPath);
-                for (final var name : cmdConfigProperties.stringPropertyNames()) {
-                    if (configProperties.getProperty(name) != null) {
-                        throw new IllegalArgumentException("Duplicate config property: " + name);
-                    }
+    @Nonnull
+    public static Path getProfilePath(@Nonnull Repository repository, @Nonnull String profile) {
+        return repository.launcherDir.resolve("profiles").resolve(profile);
+    }
+
+    @Nonnull
+    public static Properties getCommandConfigProperties(
+            @Nonnull Repository repository,
+            @Nonnull String profile,
+            @Nonnull String command
+    ) throws IOException {
+
+        final var configPath = getProfilePath(repository, profile).resolve("conf").resolve("config.properties");
+        final var commandsPath = getProfilePath(repository, profile).resolve("commands");
+
+        final var configProperties = getConfigProperties(configPath);
+
+        final var cmdConfPath = commandsPath.resolve(command + ".properties");
+        if (Files.exists(cmdConfPath)) {
+            final var cmdConfigProperties = getConfigProperties(cmdConfPath);
+            for (final var name : cmdConfigProperties.stringPropertyNames()) {
+                if (configProperties.getProperty(name) != null) {
+                    throw new IllegalArgumentException("Duplicate config property: " + name);
                 }
-                configProperties.putAll(cmdConfigProperties);
             }
+            configProperties.putAll(cmdConfigProperties);
+        }
 
-            AbstractMain.sanityCheck(configProperties);
-
-            String commandArguments = null;
-            Properties environmentProperties = null;
-            Properties systemProperties = null;
-            Properties attachmentsProperties = null;
-            final var attachments = new HashMap<String, Resource>();
-            final var dependencies = new ArrayList<Resource>();
-
-            final var metaResource = repository.resolve(cmd);
-            try (var fileInputStream = metaResource.getInputStream();
-                 var xzInputStream = new XZCompressorInputStream(fileInputStream);
-                 var tarInputStream = new TarArchiveInputStream(xzInputStream, UTF_8.name())) {
-                while (true) {
-                    final var entry = tarInputStream.getNextTarEntry();
-                    if (entry == null) {
-                        break;
-                    }
-                    if (entry.isFile()) {
-                        final var entryName = entry.getName();
-                        final byte[] bytes = AbstractMain.read(tarInputStream, entry);
-                        switch (entryName) {
-                            case "dependencies" -> {
-                                final var content = new String(bytes, UTF_8);
-                                final var lines = Stream.of(content.split("\n", -1))
-                                        .map(String::trim)
-                                        .filter(e -> !e.isEmpty())
-                                        .toList();
-                                for (final var dependency : lines) {
-                                    dependencies.add(repository.resolve(dependency));
-                                }
+        AbstractMain.sanityCheck(configProperties);
+
+        return configProperties;
+    }
+
+    @Nonnull
+    protected Launch prepare(
+            @Nonnull Repository repository,
+            @Nonnull AttachmentCache attachmentCache,
+            @Nonnull Properties configProperties,
+            @Nonnull String profile,
+            @Nonnull String command,
+            @Nonnull List<String> arguments
+    ) throws IOException {
+
+        final var pidPath = getPidPath(repository, profile, command);
+
+        if (isAlive(pidPath)) {
+            throw new IllegalStateException();
+        }
+
+        final var configPath = getProfilePath(repository, profile).resolve("conf").resolve("config.properties");
+        final var commandsPath = getProfilePath(repository, profile).resolve("commands");
+        final var cmdConfPath = commandsPath.resolve(command + ".properties");
+        final var cmd = Files.readString(commandsPath.resolve(command), UTF_8).trim();
+
+        final var commandPath = getCommandPath(repository, profile, command);
+        final var planPath = commandPath.resolve("plan.bin");
+
+        final var planStarted = System.nanoTime();
+        final var trace = new LaunchTrace(command);
+
+        var span = trace.begin("repository.resolve");
+        final var metaResource = repository.resolve(cmd);
+        span.end();
+
+        span = trace.begin("metadata.read");
+        final byte[] metaBytes;
+        try (var fileInputStream = metaResource.getInputStream()) {
+            metaBytes = fileInputStream.readAllBytes();
+        }
+        span.end();
+
+        span = trace.begin("host.facts");
+        final var hostFacts = HostFacts.read(configProperties);
+        span.end();
+
+        span = trace.begin("plan.key");
+        final var keyDigest = LaunchPlan.newKeyDigest();
+        LaunchPlan.updateKey(keyDigest, cmd);
+        LaunchPlan.updateKey(keyDigest, metaBytes);
+        LaunchPlan.updateKey(keyDigest, Files.readAllBytes(configPath));
+        LaunchPlan.updateKey(keyDigest, Files.exists(cmdConfPath) ? Files.readAllBytes(cmdConfPath) : null);
+        LaunchPlan.updateKey(keyDigest, String.join("\0", arguments));
+        LaunchPlan.updateKey(keyDigest, hostFacts.getValues());
+        final var key = keyDigest.digest();
+        span.end();
+
+        final var dependencies = new ArrayList<Resource>();
+        final var dependencyFutures = new ArrayList<CompletableFuture<Path>>();
+        final var attachments = new HashMap<String, Resource>();
+        final var preparedAttachments = new HashMap<String, CompletableFuture<Path>>();
+
+        span = trace.begin("plan.load");
+        var plan = PLANS.get(planPath);
+        if (plan == null || !Arrays.equals(plan.key, key) || !plan.isCurrent(environment)) {
+            plan = LaunchPlan.read(planPath, key, environment);
+        }
+        span.end();
+        final var warm = plan != null;
+        if (warm) {
+            for (final var dependency : plan.dependencies) {
+                span = trace.begin("repository.resolve");
+                final var resource = repository.resolve(dependency);
+                span.end();
+                dependencies.add(resource);
+                dependencyFutures.add(resource.getCompletableFuture());
+            }
+            for (final var attachment : plan.attachments) {
+                span = trace.begin("repository.resolve");
+                final var resource = repository.resolve(attachment);
+                span.end();
+                attachments.put(attachment, resource);
+                preparedAttachments.put(attachment,
+                        attachmentCache.prepare(resource, plan.attachmentDigests.getProperty(attachment)));
+            }
+        } else {
+            span = trace.begin("plan.create");
+            plan = AbstractMain.createPlan(repository, attachmentCache, configProperties, metaBytes,
+                    arguments, key, dependencies, dependencyFutures, attachments, preparedAttachments, hostFacts,
+                    environment, trace);
+            span.end();
+            span = trace.begin("plan.write");
+            Files.createDirectories(commandPath);
+            plan.write(planPath);
+            span.end();
+        }
+        PLANS.put(planPath, plan);
+        plan = plan.withTime(Instant.ofEpochMilli(System.currentTimeMillis()).toString()
+                .replace(':', '-').replace('.', '_'));
+
+        final var attachmentFutures = new ArrayList<CompletableFuture<Path>>();
+        for (final var prepared : preparedAttachments.values()) {
+            attachmentFutures.add(prepared.thenApply(path -> {
+                final var extraction = attachmentCache.getExtraction(path);
+                if (extraction != null) {
+                    trace.addExtraction(extraction);
+                }
+                return path;
+            }));
+        }
+
+        final var planNanos = System.nanoTime() - planStarted;
+
+        Files.createDirectories(commandPath);
+
+        final var logPath = commandPath.resolve("log");
+        Files.createDirectories(logPath);
+
+        final var workPath = commandPath.resolve("work");
+        Files.createDirectories(workPath);
+
+        return new Launch(
+                command,
+                pidPath,
+                commandPath,
+                logPath,
+                workPath,
+                plan,
+                warm,
+                planNanos,
+                trace,
+                dependencies,
+                dependencyFutures,
+                attachmentFutures,
+                attachments.values().stream()
+                        .map(e -> getCachePath(repository, e).toString())
+                        .sorted()
+                        .distinct()
+                        .toList()
+        );
+    }
+
+    protected void start(@Nonnull Launch launch, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
+
+        final var plan = launch.plan;
+        final var commandPath = launch.commandPath;
+
+        final var waitStarted = System.nanoTime();
+        final var dependenciesReady =
+                allOfFailFast(launch.dependencyFutures).thenApply(v -> System.nanoTime());
+        final var attachmentsReady =
+                allOfFailFast(launch.attachmentFutures).thenApply(v -> System.nanoTime());
+        allOfFailFast(List.of(dependenciesReady, attachmentsReady)).get();
+
+        final var trace = launch.trace;
+        trace.add("wait.dependencies", dependenciesReady.get() - waitStarted);
+        trace.add("wait.attachments", attachmentsReady.get() - waitStarted);
+
+        out.println((launch.warm ? "Launch plan loaded in " : "Metadata parsed in ")
+                    + toMillis(launch.planNanos)
+                    + " ms, waited " + toMillis(dependenciesReady.get() - waitStarted)
+                    + " ms for dependencies and " + toMillis(attachmentsReady.get() - waitStarted)
+                    + " ms for attachments");
+
+        final var attachmentsRecordPath = commandPath.resolve("attachments");
+        final var attachmentsRecordTmpPath = getTmpPath(attachmentsRecordPath);
+        Files.writeString(attachmentsRecordTmpPath, String.join("\n", launch.attachmentCachePaths), UTF_8);
+        Files.move(attachmentsRecordTmpPath, attachmentsRecordPath, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        Files.createDirectories(launch.pidPath.getParent());
+
+        var commandArguments = plan.commandArguments;
+        if (getBooleanProperty(plan.configProperties, "launcher.cds", false)) {
+            final var span = trace.begin("cds");
+            commandArguments = AbstractMain.getCdsOptions(commandPath, plan.configProperties, launch.dependencies)
+                               + " " + commandArguments;
+            span.end();
+        }
+
+        final var span = trace.begin("process.start");
+        doStart(launch.pidPath, plan.configProperties, commandArguments, plan.environmentProperties,
+                plan.javaCmd, commandPath, launch.logPath, launch.workPath, out);
+        span.end();
+
+        trace.write(commandPath.resolve("launch-history"), getClass().getSimpleName(), launch.warm);
+    }
+
+    @Nonnull
+    private static LaunchPlan createPlan(
+            @Nonnull Repository repository,
+            @Nonnull AttachmentCache attachmentCache,
+            @Nonnull Properties configProperties,
+            @Nonnull byte[] metaBytes,
+            @Nonnull List<String> arguments,
+            @Nonnull byte[] key,
+            @Nonnull List<Resource> dependencies,
+            @Nonnull List<CompletableFuture<Path>> dependencyFutures,
+            @Nonnull Map<String, Resource> attachmentResources,
+            @Nonnull Map<String, CompletableFuture<Path>> preparedAttachments,
+            @Nonnull HostFacts hostFacts,
+            @Nonnull Map<String, String> environment,
+            @Nonnull LaunchTrace trace
+    ) throws IOException {
+
+        final var timeToken = UUID.randomUUID().toString();
+        final var inputs = new PlanInputs(environment);
+
+        String commandArguments = null;
+        Properties environmentProperties = null;
+        Properties systemProperties = null;
+        Properties attachmentsProperties = null;
+        final var attachments = new HashMap<String, String>();
+        final var attachmentDigests = new Properties();
+        final var dependencyNames = new ArrayList<String>();
+
+        try (var fileInputStream = new ByteArrayInputStream(metaBytes);
+             var xzInputStream = new XZCompressorInputStream(fileInputStream);
+             var tarInputStream = new TarArchiveInputStream(xzInputStream, UTF_8.name())) {
+            while (true) {
+                final var entry = tarInputStream.getNextTarEntry();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.isFile()) {
+                    final var entryName = entry.getName();
+                    final byte[] bytes = AbstractMain.read(tarInputStream, entry);
+                    switch (entryName) {
+                        case "dependencies" -> {
+                            final var content = new String(bytes, UTF_8);
+                            final var lines = Stream.of(content.split("\n", -1))
+                                    .map(String::trim)
+                                    .filter(e -> !e.isEmpty())
+                                    .toList();
+                            for (final var dependency : lines) {
+                                final var span = trace.begin("repository.resolve");
+                                final var resource = repository.resolve(dependency);
+                                span.end();
+                                dependencyNames.add(dependency);
+                                dependencies.add(resource);
+                                dependencyFutures.add(resource.getCompletableFuture());
                             }
-                            case "commandArguments" -> {
-                                if (commandArguments != null) {
-                                    throw new IllegalArgumentException();
-                                }
-                                commandArguments = new String(bytes, UTF_8);
+                        }
+                        case "commandArguments" -> {
+                            if (commandArguments != null) {
+                                throw new IllegalArgumentException();
                             }
-                            case "environment.properties" -> {
-                                if (environmentProperties != null) {
-                                    throw new IllegalArgumentException();
-                                }
-                                environmentProperties = AbstractMain.getProperties(bytes);
+                            commandArguments = new String(bytes, UTF_8);
+                        }
+                        case "environment.properties" -> {
+                            if (environmentProperties != null) {
+                                throw new IllegalArgumentException();
                             }
-                            case "system.properties" -> {
-                                if (systemProperties != null) {
-                                    throw new IllegalArgumentException();
-                                }
-                                systemProperties = AbstractMain.getProperties(bytes);
+                            environmentProperties = AbstractMain.getProperties(bytes);
+                        }
+                        case "system.properties" -> {
+                            if (systemProperties != null) {
+                                throw new IllegalArgumentException();
+                            }
+                            systemProperties = AbstractMain.getProperties(bytes);
+                        }
+                        case "attachments.properties" -> {
+                            if (attachmentsProperties != null) {
+                                throw new IllegalArgumentException();
                             }
-                            case "attachments.properties" -> {
-                                if (attachmentsProperties != null) {
-                                    throw new IllegalArgumentException();
+                            attachmentsProperties = AbstractMain.getProperties(bytes);
+                            AbstractMain.sanityCheck(attachmentsProperties);
+                            final var span = trace.begin("templates.resolve");
+                            configProperties = AbstractMain.resolvePropertiesRecursive(
+                                    configProperties,
+                                    attachmentsProperties,
+                                    repository,
+                                    attachments,
+                                    attachmentResources,
+                                    timeToken,
+                                    hostFacts,
+                                    inputs,
+                                    trace
+                            );
+                            span.end();
+                            for (final var attachment : attachments.entrySet()) {
+                                final var digestName = attachment.getKey() + DIGEST_SUFFIX;
+                                final var digest = attachmentsProperties.getProperty(digestName);
+                                if (digest != null) {
+                                    attachmentDigests.setProperty(attachment.getValue(), checkDigestValue(digestName,
+                                            AbstractMain.resolveString(configProperties, hostFacts, inputs, digest)));
                                 }
-                                attachmentsProperties = AbstractMain.getProperties(bytes);
-                                AbstractMain.sanityCheck(attachmentsProperties);
-                                configProperties = AbstractMain.resolvePropertiesRecursive(
-                                        configProperties,
-                                        attachmentsProperties,
-                                        repository,
-                                        attachments
-                                );
                             }
-                            default -> throw new IllegalArgumentException();
+                            for (final var resource : attachmentResources.entrySet()) {
+                                preparedAttachments.put(resource.getKey(), attachmentCache.prepare(resource.getValue(),
+                                        attachmentDigests.getProperty(resource.getKey())));
+                            }
                         }
+                        default -> throw new IllegalArgumentException();
                     }
                 }
             }
-            if (commandArguments == null) {
-                throw new IllegalArgumentException();
-            }
-            if (environmentProperties == null) {
-                throw new IllegalArgumentException();
-            }
-            if (systemProperties == null) {
-                throw new IllegalArgumentException();
-            }
-            if (attachmentsProperties == null) {
-                throw new IllegalArgumentException();
-            }
-            systemProperties = AbstractMain.resolveProperties(configProperties, systemProperties);
-            commandArguments = AbstractMain.resolveString(
-                    AbstractMain.getCommandProperties(configProperties, dependencies, systemProperties,
-                            asList(args).subList(2, args.length)),
-                    commandArguments);
-            environmentProperties = AbstractMain.resolveProperties(configProperties, environmentProperties);
-
-            final var javaHome = requireNonNull(configProperties.getProperty("java.home"));
-            final var javaCmd = Path.of(javaHome, "bin", "java").toString();
+        }
+        if (commandArguments == null) {
+            throw new IllegalArgumentException();
+        }
+        if (environmentProperties == null) {
+            throw new IllegalArgumentException();
+        }
+        if (systemProperties == null) {
+            throw new IllegalArgumentException();
+        }
+        if (attachmentsProperties == null) {
+            throw new IllegalArgumentException();
+        }
+        final var span = trace.begin("templates.resolve");
+        systemProperties = AbstractMain.resolveProperties(configProperties, hostFacts, inputs, systemProperties);
+        commandArguments = AbstractMain.resolveString(
+                AbstractMain.getCommandProperties(configProperties, dependencies, systemProperties, arguments),
+                hostFacts,
+                inputs,
+                commandArguments);
+        environmentProperties =
+                AbstractMain.resolveProperties(configProperties, hostFacts, inputs, environmentProperties);
+        span.end();
+
+        final var javaHome = requireNonNull(configProperties.getProperty("java.home"));
+        final var javaCmd = Path.of(javaHome, "bin", "java").toString();
+
+        final var environmentNames = inputs.getEnvironmentNames();
+        final var systemPropertyNames = inputs.getSystemPropertyNames();
+        return new LaunchPlan(key, timeToken, configProperties, commandArguments, environmentProperties, javaCmd,
+                dependencyNames, new ArrayList<>(new TreeSet<>(attachments.values())), attachmentDigests,
+                environmentNames, systemPropertyNames,
+                PlanInputs.getKey(environmentNames, systemPropertyNames, environment));
+    }
 
-            final var commandPath = getCommandPath(repository, profile, command);
-            Files.createDirectories(commandPath);
+    @Nonnull
+    private static String getCdsOptions(
+            @Nonnull Path commandPath,
+            @Nonnull Properties configProperties,
+            @Nonnull List<Resource> dependencies
+    ) throws IOException {
 
-            final var logPath = commandPath.resolve("log");
-            Files.createDirectories(logPath);
-
-            final var workPath = commandPath.resolve("work");
-            Files.createDirectories(workPath);
-
-            for (final var resource : attachments.values()) {
-                final var cachePath = AbstractMain.getCachePath(repository, resource);
-                if (!Files.exists(cachePath)) {
-                    final var extractor = AbstractMain.getExtractor(resource.getPath().getFileName().toString());
-                    final var tmpPath = getTmpPath(cachePath);
-                    Files.createDirectories(tmpPath);
-                    Files.walkFileTree(tmpPath, Collections.emptySet(), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
-                        @Override
-                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                            final var result = super.visitFile(file, attrs);
-                            Files.delete(file);
-                            return result;
-                        }
+        final var keyDigest = LaunchPlan.newKeyDigest();
+        LaunchPlan.updateKey(keyDigest, requireNonNull(configProperties.getProperty("java.home")));
+        for (final var path : dependencies.stream().map(Resource::getPath).sorted().toList()) {
+            LaunchPlan.updateKey(keyDigest, path.toString());
+        }
+        final var archiveName = HexFormat.of().formatHex(keyDigest.digest()) + ".jsa";
 
-                        @Override
-                        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                            final var result = super.postVisitDirectory(dir, exc);
-                            Files.delete(dir);
-                            return result;
-                        }
-                    });
-                    Files.createDirectories(tmpPath);
-                    extractor.extract(resource, tmpPath);
-                    Files.move(tmpPath, cachePath, ATOMIC_MOVE, REPLACE_EXISTING);
+        final var cdsPath = Files.createDirectories(commandPath.resolve("cds"));
+        try (var paths = Files.list(cdsPath)) {
+            for (final var path : (Iterable<Path>) paths::iterator) {
+                if (!path.getFileName().toString().equals(archiveName)) {
+                    Files.delete(path);
                 }
             }
+        }
 
-            for (final var dependency : dependencies) {
-                dependency.getCompletableFuture().get();
-            }
-
-            Files.createDirectories(pidPath.getParent());
+        final var archivePath = cdsPath.resolve(archiveName);
+        final var option = Files.exists(archivePath) ? "-XX:SharedArchiveFile=" : "-XX:ArchiveClassesAtExit=";
+        return "\"" + escapeJavaArgSpecials(option + archivePath) + "\"";
+    }
 
-            doStart(pidPath, configProperties, commandArguments, environmentProperties, javaCmd, commandPath, logPath,
-                    workPath);
-        }
+    private static long toMillis(long nanos) {
+        return Math.max(0, nanos) / 1_000_000;
     }
 
     @Nonnull
     private static Properties getCommandProperties(
             @Nonnull Properties configProperties,
-            @Nonnull ArrayList<Resource> dependencies,
+            @Nonnull List<Resource> dependencies,
             @Nonnull Properties systemProperties,
             @Nonnull List<String> arguments
     ) {
@@ -346,6 +595,9 @@ public abstract class AbstractMain {
             if (name.startsWith(ENV_PREFIX)) {
                 throw new IllegalArgumentException();
             }
+            if (HostFacts.isFact(name)) {
+                throw new IllegalArgumentException("Property name collides with a host fact: " + name);
+            }
         }
     }
 
@@ -359,39 +611,50 @@ public abstract class AbstractMain {
     }
 
     @Nonnull
-    private static Properties resolveProperties(@Nonnull Properties configProperties, @Nonnull Properties properties) {
+    private static Properties resolveProperties(
+            @Nonnull Properties configProperties,
+            @Nonnull HostFacts hostFacts,
+            @Nonnull PlanInputs inputs,
+            @Nonnull Properties properties
+    ) {
         final var p = new Properties();
         for (final var name : properties.stringPropertyNames()) {
-            p.setProperty(name, resolveString(configProperties, properties.getProperty(name)));
+            p.setProperty(name, resolveString(configProperties, hostFacts, inputs, properties.getProperty(name)));
         }
         return p;
     }
 
     @Nonnull
-    private static byte[] read(@Nonnull TarArchiveInputStream tarInputStream, @Nonnull TarArchiveEntry entry)
+    static byte[] read(@Nonnull TarArchiveInputStream tarInputStream, @Nonnull TarArchiveEntry entry)
             throws IOException {
 
         final var size = entry.getSize();
-        final var buffer = new byte[0x1000000];
-        final var byteArrayOutputStream = new ByteArrayOutputStream();
-        var remained = size;
-        while (remained != 0) {
-            final var read = tarInputStream.read(buffer, 0, (int) Math.min(buffer.length, remained));
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Metadata entry too large: " + entry.getName());
+        }
+        final var bytes = new byte[(int) size];
+        var offset = 0;
+        while (offset != bytes.length) {
+            final var read = tarInputStream.read(bytes, offset, bytes.length - offset);
             if (read < 0) {
                 throw new IllegalArgumentException();
             }
-            remained -= read;
-            byteArrayOutputStream.write(buffer, 0, read);
+            offset += read;
         }
-        return byteArrayOutputStream.toByteArray();
+        return bytes;
     }
 
     @Nonnull
-    private static Properties resolvePropertiesRecursive(
+    static Properties resolvePropertiesRecursive(
             @Nonnull Properties configProperties,
             @Nonnull Properties attachmentsProperties,
             @Nonnull Repository repository,
-            @Nonnull Map<String, Resource> attachments
+            @Nonnull Map<String, String> attachments,
+            @Nonnull Map<String, Resource> attachmentResources,
+            @Nonnull String timeFileName,
+            @Nonnull HostFacts hostFacts,
+            @Nonnull PlanInputs inputs,
+            @Nonnull LaunchTrace trace
     ) throws IOException {
 
         for (final var name : attachmentsProperties.stringPropertyNames()) {
@@ -421,8 +684,11 @@ public abstract class AbstractMain {
             private Appender<IOException> parse(@Nonnull String name) throws IOException {
 
                 if (name.startsWith(ENV_PREFIX)) {
-                    return new CharSequenceAppender<>(
-                            requireNonNullElse(System.getenv(name.substring(ENV_PREFIX.length())), ""));
+                    return new CharSequenceAppender<>(inputs.getenv(name.substring(ENV_PREFIX.length())));
+                }
+
+                if (HostFacts.isFact(name)) {
+                    return new CharSequenceAppender<>(hostFacts.getValue(name));
                 }
 
                 final var configProperty = configProperties.getProperty(name);
@@ -431,13 +697,20 @@ public abstract class AbstractMain {
                 }
 
                 final var attachmentProperty = attachmentsProperties.getProperty(name);
+                if (attachmentProperty != null && name.endsWith(DIGEST_SUFFIX)) {
+                    return new CharSequenceAppender<>(parse(name, attachmentProperty));
+                }
                 if (attachmentProperty != null) {
-                    final var resource = repository.resolve(parse(name, attachmentProperty));
-                    attachments.put(name, resource);
+                    final var attachment = parse(name, attachmentProperty);
+                    final var span = trace.begin("repository.resolve");
+                    final var resource = repository.resolve(attachment);
+                    span.end();
+                    attachments.put(name, attachment);
+                    attachmentResources.put(attachment, resource);
                     return new CharSequenceAppender<>(getCachePath(repository, resource).toString());
                 }
 
-                final var systemProperty = System.getProperty(name);
+                final var systemProperty = inputs.getSystemProperty(name);
                 if (systemProperty != null) {
                     return new CharSequenceAppender<>(systemProperty);
                 }
@@ -473,8 +746,7 @@ public abstract class AbstractMain {
             resolve(resolver, result, name);
         }
 
-        result.setProperty("time.fileName",
-                Instant.ofEpochMilli(System.currentTimeMillis()).toString().replace(':', '-').replace('.', '_'));
+        result.setProperty("time.fileName", timeFileName);
 
         return result;
     }
@@ -494,12 +766,17 @@ public abstract class AbstractMain {
     }
 
     @Nonnull
-    private static String resolveString(@Nonnull Properties configProperties, @Nonnull String source) {
+    private static String resolveString(
+            @Nonnull Properties configProperties,
+            @Nonnull HostFacts hostFacts,
+            @Nonnull PlanInputs inputs,
+            @Nonnull String source
+    ) {
 
         final var builder = new StringBuilder();
         new TemplateParser<RuntimeException>()
                 .reset((name, listener) -> listener.append(
-                                new CharSequenceAppender<>(getValue(configProperties, name))),
+                                new CharSequenceAppender<>(getValue(configProperties, hostFacts, inputs, name))),
                         new TemplateResultWriter<>(new StringBuilderAppendable<>(builder)))
                 .append(source)
                 .end();
@@ -507,10 +784,19 @@ public abstract class AbstractMain {
     }
 
     @Nonnull
-    private static String getValue(@Nonnull Properties configProperties, String name) {
+    private static String getValue(
+            @Nonnull Properties configProperties,
+            @Nonnull HostFacts hostFacts,
+            @Nonnull PlanInputs inputs,
+            @Nonnull String name
+    ) {
 
         if (name.startsWith(ENV_PREFIX)) {
-            return requireNonNullElse(System.getenv(name.substring(ENV_PREFIX.length())), "");
+            return inputs.getenv(name.substring(ENV_PREFIX.length()));
+        }
+
+        if (HostFacts.isFact(name)) {
+            return hostFacts.getValue(name);
         }
 
         final var configProperty = configProperties.getProperty(name);
@@ -518,7 +804,7 @@ public abstract class AbstractMain {
             return configProperty;
         }
 
-        final var systemProperty = System.getProperty(name);
+        final var systemProperty = inputs.getSystemProperty(name);
         if (systemProperty != null) {
             return systemProperty;
         }
@@ -526,6 +812,76 @@ public abstract class AbstractMain {
         throw new IllegalArgumentException("Parameter \"" + name + "\" not defined");
     }
 
+    protected static class Launch {
+
+        @Nonnull
+        public final String command;
+
+        @Nonnull
+        public final Path pidPath;
+
+        @Nonnull
+        public final Path commandPath;
+
+        @Nonnull
+        public final Path logPath;
+
+        @Nonnull
+        public final Path workPath;
+
+        @Nonnull
+        public final LaunchPlan plan;
+
+        public final boolean warm;
+
+        public final long planNanos;
+
+        @Nonnull
+        public final LaunchTrace trace;
+
+        @Nonnull
+        public final List<Resource> dependencies;
+
+        @Nonnull
+        public final List<CompletableFuture<Path>> dependencyFutures;
+
+        @Nonnull
+        public final List<CompletableFuture<Path>> attachmentFutures;
+
+        @Nonnull
+        public final List<String> attachmentCachePaths;
+
+        public Launch(
+                @Nonnull String command,
+                @Nonnull Path pidPath,
+                @Nonnull Path commandPath,
+                @Nonnull Path logPath,
+                @Nonnull Path workPath,
+                @Nonnull LaunchPlan plan,
+                boolean warm,
+                long planNanos,
+                @Nonnull LaunchTrace trace,
+                @Nonnull List<Resource> dependencies,
+                @Nonnull List<CompletableFuture<Path>> dependencyFutures,
+                @Nonnull List<CompletableFuture<Path>> attachmentFutures,
+                @Nonnull List<String> attachmentCachePaths
+        ) {
+            this.command = command;
+            this.pidPath = pidPath;
+            this.commandPath = commandPath;
+            this.logPath = logPath;
+            this.workPath = workPath;
+            this.plan = plan;
+            this.warm = warm;
+            this.planNanos = planNanos;
+            this.trace = trace;
+            this.dependencies = dependencies;
+            this.dependencyFutures = dependencyFutures;
+            this.attachmentFutures = attachmentFutures;
+            this.attachmentCachePaths = attachmentCachePaths;
+        }
+    }
+
     protected abstract void doStart(
             Path pidPath,
             Properties configProperties,
@@ -534,6 +890,7 @@ public abstract class AbstractMain {
             String javaCmd,
             Path commandPath,
             Path logPath,
-            Path workPath
-    ) throws IOException;
+            Path workPath,
+            PrintStream out
+    ) throws IOException, InterruptedException;
 }
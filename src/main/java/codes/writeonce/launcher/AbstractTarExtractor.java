@@ -1,6 +1,5 @@
 package codes.writeonce.launcher;
 
-import codes.writeonce.repository.Resource;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 
 import javax.annotation.Nonnull;
@@ -12,14 +11,34 @@ import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.HashSet;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.attribute.PosixFilePermissions.asFileAttribute;
 
 public abstract class AbstractTarExtractor extends AbstractExtractor {
 
+    private final int writerThreads;
+
+    private final long inFlightBytes;
+
+    protected AbstractTarExtractor() {
+        this(0, 0);
+    }
+
+    protected AbstractTarExtractor(int writerThreads, long inFlightBytes) {
+        if (writerThreads < 0) {
+            throw new IllegalArgumentException("Invalid writer thread count: " + writerThreads);
+        }
+        this.writerThreads = writerThreads;
+        this.inFlightBytes = inFlightBytes;
+    }
+
     @Override
-    public void extract(@Nonnull Resource resource, @Nonnull Path destinationPath) throws IOException {
+    public void extract(
+            @Nonnull ArchiveSource source,
+            @Nonnull Path destinationPath,
+            @Nonnull ExtractionListener listener
+    ) throws IOException, ExecutionException, InterruptedException {
 
         final var rootPath = destinationPath.toRealPath();
 
@@ -31,10 +50,12 @@ public abstract class AbstractTarExtractor extends AbstractExtractor {
         final var dirs = new TreeMap<Path, DirInfo>();
         final var symlinks = new TreeMap<Path, SymlinkInfo>();
 
-        final var bytes = new byte[0x1000000];
+        final var bytes = BufferPool.SHARED.acquire(BufferPool.LARGE);
 
-        try (var resourceInputStream = resource.getInputStream();
-             var realInputStream = getInputStream(resourceInputStream);
+        try (var pipeline = writerThreads == 0
+                ? null
+                : new WriterPipeline(writerThreads, inFlightBytes, posix, listener);
+             var realInputStream = openInputStream(source);
              var in = new TarArchiveInputStream(realInputStream, UTF_8.name())) {
 
             while (true) {
@@ -52,11 +73,25 @@ public abstract class AbstractTarExtractor extends AbstractExtractor {
                 final var lastModified = FileTime.from(entry.getLastModifiedDate().toInstant());
                 final var permissions = fromMode(entry.getMode());
 
-                if (entry.isFile()) {
+                if (entry.isSymbolicLink()) {
+                    symlinks.put(entryPath, new SymlinkInfo(Path.of(entry.getLinkName()), lastModified, permissions));
+                } else if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                    dirs.put(entryPath, new DirInfo(lastModified, permissions));
+                    createdDirs.add(parent);
+                } else if (entry.isFile()) {
+                    if (!listener.isSelected(entryPath)) {
+                        continue;
+                    }
                     final var size = entry.getSize();
                     if (createdDirs.add(parent)) {
                         Files.createDirectories(parent);
                     }
+                    if (pipeline != null) {
+                        pipeline.write(entryPath, size, in, permissions, lastModified);
+                        continue;
+                    }
+                    final var digest = newDigest(listener);
                     try (var out = Files.newOutputStream(entryPath)) {
                         var remained = size;
                         while (remained != 0) {
@@ -66,42 +101,37 @@ public abstract class AbstractTarExtractor extends AbstractExtractor {
                             }
                             remained -= read;
                             out.write(bytes, 0, read);
+                            if (digest != null) {
+                                digest.update(bytes, 0, read);
+                            }
                         }
                     }
-                    if (posix) {
-                        Files.setPosixFilePermissions(entryPath, permissions);
-                    }
-                    Files.setLastModifiedTime(entryPath, lastModified);
-                } else if (entry.isDirectory()) {
-                    Files.createDirectories(entryPath);
-                    dirs.put(entryPath, new DirInfo(lastModified, permissions));
-                    createdDirs.add(parent);
-                } else if (entry.isSymbolicLink()) {
-                    symlinks.put(entryPath, new SymlinkInfo(Path.of(entry.getLinkName()), lastModified, permissions));
+                    completeFile(listener, entryPath, size, permissions, lastModified, digest, posix);
                 } else {
                     throw new IllegalArgumentException();
                 }
             }
-        }
 
-        for (final var entry : dirs.descendingMap().entrySet()) {
-            final var path = entry.getKey();
-            final var info = entry.getValue();
-            if (posix) {
-                Files.setPosixFilePermissions(path, info.permissions);
+            if (pipeline != null) {
+                pipeline.finish();
             }
-            Files.setLastModifiedTime(path, info.time);
+        } finally {
+            BufferPool.SHARED.release(bytes);
         }
 
-        for (final var entry : symlinks.descendingMap().entrySet()) {
-            final var path = entry.getKey();
-            final var info = entry.getValue();
-            final var parent = path.getParent();
-            if (createdDirs.add(parent)) {
-                Files.createDirectories(parent);
-            }
-            Files.createSymbolicLink(path, info.path, asFileAttribute(info.permissions));
-            Files.setLastModifiedTime(path, info.time);
+        applyDeferred(dirs, symlinks, createdDirs, posix, listener);
+    }
+
+    @Nonnull
+    protected InputStream openInputStream(@Nonnull ArchiveSource source)
+            throws IOException, ExecutionException, InterruptedException {
+
+        final var inputStream = source.getInputStream();
+        try {
+            return getInputStream(inputStream);
+        } catch (Throwable e) {
+            inputStream.close();
+            throw e;
         }
     }
 
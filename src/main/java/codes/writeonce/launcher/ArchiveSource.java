@@ -0,0 +1,19 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+public interface ArchiveSource {
+
+    @Nonnull
+    String getName();
+
+    @Nonnull
+    InputStream getInputStream() throws IOException;
+
+    @Nonnull
+    Path getFile() throws ExecutionException, InterruptedException;
+}
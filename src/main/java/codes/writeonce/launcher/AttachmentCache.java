@@ -0,0 +1,543 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+import codes.writeonce.repository.Resource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static codes.writeonce.launcher.CacheManifest.getManifestPath;
+import static codes.writeonce.launcher.Utils.deleteRecursively;
+import static codes.writeonce.launcher.Utils.getBooleanProperty;
+import static codes.writeonce.launcher.Utils.getIntProperty;
+import static codes.writeonce.launcher.Utils.getSizeProperty;
+import static codes.writeonce.launcher.Utils.getTmpPath;
+import static codes.writeonce.launcher.Utils.touch;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+public class AttachmentCache implements AutoCloseable {
+
+    public static final String DIGEST_SUFFIX = ".sha256";
+
+    private static final Map<Path, CompletableFuture<Path>> IN_FLIGHT = new HashMap<>();
+
+    @Nonnull
+    private final Repository repository;
+
+    @Nonnull
+    private final Properties configProperties;
+
+    @Nonnull
+    private final ExtractionListener listener;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final Map<Path, CompletableFuture<Path>> extractions = new HashMap<>();
+
+    @Nonnull
+    private final Map<Path, LaunchTrace.Extraction> extracted = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    @Nonnull
+    private final CacheLock lock;
+
+    private final boolean validate;
+
+    private final int decoderThreads;
+
+    public AttachmentCache(@Nonnull Repository repository, @Nonnull Properties configProperties)
+            throws IOException {
+        this(repository, configProperties, getBooleanProperty(configProperties, "launcher.cache.validate", false));
+    }
+
+    public AttachmentCache(@Nonnull Repository repository, @Nonnull Properties configProperties, boolean validate)
+            throws IOException {
+        final var parallelism = getIntProperty(configProperties, "launcher.extract.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid extraction parallelism: " + parallelism);
+        }
+        this.repository = requireNonNull(repository);
+        this.configProperties = requireNonNull(configProperties);
+        this.listener = getBooleanProperty(configProperties, "launcher.cache.dedup", false)
+                ? new ContentStore(getObjectsPath(repository)) : ExtractionListener.NONE;
+        this.lock = CacheLock.shared(repository);
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.validate = validate;
+        this.decoderThreads = getIntProperty(configProperties, "launcher.xz.threads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism));
+    }
+
+    @Nonnull
+    public static Path getCacheRootPath(@Nonnull Repository repository) {
+        return repository.launcherDir.resolve("cache");
+    }
+
+    @Nonnull
+    public static Path getCachePath(@Nonnull Repository repository, @Nonnull Resource resource) {
+        return getCacheRootPath(repository).resolve(repository.repoPath.relativize(resource.getPath()));
+    }
+
+    @Nonnull
+    public static Path getUsedPath(@Nonnull Path cachePath) {
+        return cachePath.getParent().resolve(cachePath.getFileName().toString() + ".used");
+    }
+
+    @Nonnull
+    public static FileChannel openLock(@Nonnull Repository repository) throws IOException {
+        final var cacheRootPath = Files.createDirectories(getCacheRootPath(repository));
+        return FileChannel.open(cacheRootPath.resolve(".lock"), CREATE, READ, WRITE);
+    }
+
+    public static boolean isArchive(@Nonnull String fileName) {
+        return fileName.endsWith(".tar.gz") || fileName.endsWith(".tar.xz") || fileName.endsWith(".tar.bz2")
+               || fileName.endsWith(".zip");
+    }
+
+    @Nonnull
+    public static Path getObjectsPath(@Nonnull Repository repository) {
+        return getCacheRootPath(repository).resolve(".objects");
+    }
+
+    @Nonnull
+    public CompletableFuture<Path> prepare(@Nonnull Resource resource) throws IOException {
+        return prepare(resource, null);
+    }
+
+    @Nonnull
+    public synchronized CompletableFuture<Path> prepare(@Nonnull Resource resource, @Nullable String digest)
+            throws IOException {
+
+        final var cachePath = getCachePath(repository, resource);
+        var future = extractions.get(cachePath);
+        if (future == null) {
+            touch(getUsedPath(cachePath));
+            synchronized (IN_FLIGHT) {
+                future = IN_FLIGHT.get(cachePath);
+                if (future == null) {
+                    if (Files.exists(cachePath) && !validate) {
+                        future = CompletableFuture.completedFuture(cachePath);
+                    } else if (failed.get()) {
+                        future = CompletableFuture.failedFuture(
+                                new IllegalStateException("Extraction aborted: " + resource.getPath()));
+                    } else if (Files.exists(cachePath)) {
+                        future = submit(cachePath, () -> repair(resource, digest, cachePath));
+                    } else {
+                        future = submit(cachePath, () -> extract(resource, digest, cachePath));
+                    }
+                }
+            }
+            future.whenComplete((path, e) -> {
+                if (e != null) {
+                    abort();
+                }
+            });
+            extractions.put(cachePath, future);
+        }
+        return future;
+    }
+
+    @Nullable
+    public LaunchTrace.Extraction getExtraction(@Nonnull Path cachePath) {
+        return extracted.get(cachePath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        abandon(executor.shutdownNow());
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.close();
+        }
+    }
+
+    private void abort() {
+        if (failed.compareAndSet(false, true)) {
+            abandon(executor.shutdownNow());
+        }
+    }
+
+    @Nonnull
+    private CompletableFuture<Path> submit(@Nonnull Path cachePath, @Nonnull Supplier<Path> supplier) {
+
+        final var task = new Task(cachePath, supplier);
+        IN_FLIGHT.put(cachePath, task.future);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.release();
+            return CompletableFuture.failedFuture(new IllegalStateException("Extraction aborted: " + cachePath, e));
+        }
+        return task.future;
+    }
+
+    private static void abandon(@Nonnull List<Runnable> tasks) {
+        for (final var task : tasks) {
+            if (task instanceof Task extraction) {
+                extraction.release();
+                extraction.future.completeExceptionally(
+                        new IllegalStateException("Extraction aborted: " + extraction.cachePath));
+            }
+        }
+    }
+
+    @Nonnull
+    private Path extract(@Nonnull Resource resource, @Nullable String digest, @Nonnull Path cachePath) {
+
+        if (failed.get()) {
+            throw new IllegalStateException("Extraction aborted: " + resource.getPath());
+        }
+
+        final var tmpPath = getTmpPath(cachePath);
+        try {
+            final var extractor = getExtractor(resource.getPath().getFileName().toString());
+            final var expectedDigest = getExpectedDigest(resource, digest);
+            final var source = expectedDigest == null
+                    ? new ResourceArchiveSource(resource)
+                    : new DigestArchiveSource(new ResourceArchiveSource(resource));
+            deleteRecursively(tmpPath);
+            Files.createDirectories(tmpPath);
+
+            final var rootPath = tmpPath.toRealPath();
+            final var manifestEntries = new ConcurrentLinkedQueue<CacheManifest.Entry>();
+            final var event = new LaunchTrace.AttachmentExtractionEvent();
+            final var files = new AtomicLong();
+            final var bytes = new AtomicLong();
+            final var started = System.nanoTime();
+            event.begin();
+            extractor.extract(source, tmpPath, new ExtractionListener() {
+                @Override
+                public boolean isDigestRequired() {
+                    return listener.isDigestRequired();
+                }
+
+                @Override
+                public void fileExtracted(
+                        @Nonnull Path path,
+                        long size,
+                        @Nonnull Set<PosixFilePermission> permissions,
+                        @Nonnull FileTime lastModified,
+                        @Nullable byte[] digest
+                ) throws IOException {
+                    files.incrementAndGet();
+                    bytes.addAndGet(size);
+                    listener.fileExtracted(path, size, permissions, lastModified, digest);
+                    manifestEntries.add(new CacheManifest.Entry(CacheManifest.FILE,
+                            rootPath.relativize(path).toString(), size, AbstractExtractor.toMode(permissions),
+                            getLastModifiedMillis(path), null));
+                }
+
+                @Override
+                public void directoryExtracted(
+                        @Nonnull Path path,
+                        @Nonnull Set<PosixFilePermission> permissions,
+                        @Nonnull FileTime lastModified
+                ) {
+                    manifestEntries.add(new CacheManifest.Entry(CacheManifest.DIRECTORY,
+                            rootPath.relativize(path).toString(), 0, AbstractExtractor.toMode(permissions),
+                            lastModified.toMillis(), null));
+                }
+
+                @Override
+                public void symlinkExtracted(@Nonnull Path path, @Nonnull Path target) {
+                    manifestEntries.add(new CacheManifest.Entry(CacheManifest.SYMLINK,
+                            rootPath.relativize(path).toString(), 0, 0, 0, target.toString()));
+                }
+            });
+            checkDigest(resource, source, expectedDigest);
+            CacheManifest.write(getManifestPath(cachePath), manifestEntries);
+            Files.move(tmpPath, cachePath, ATOMIC_MOVE, REPLACE_EXISTING);
+            event.end();
+
+            extracted.put(cachePath,
+                    new LaunchTrace.Extraction(cachePath, System.nanoTime() - started, files.get(), bytes.get()));
+            if (event.shouldCommit()) {
+                event.path = cachePath.toString();
+                event.files = files.get();
+                event.bytes = bytes.get();
+                event.commit();
+            }
+            return cachePath;
+        } catch (Throwable e) {
+            try {
+                deleteRecursively(tmpPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            throw new IllegalStateException("Failed to extract " + resource.getPath(), e);
+        }
+    }
+
+    @Nonnull
+    private Path repair(@Nonnull Resource resource, @Nullable String digest, @Nonnull Path cachePath) {
+
+        if (failed.get()) {
+            throw new IllegalStateException("Extraction aborted: " + resource.getPath());
+        }
+
+        final var repairPath = cachePath.resolveSibling(
+                cachePath.getFileName() + ".repair." + UUID.randomUUID() + ".tmp");
+        try {
+            final var manifestPath = getManifestPath(cachePath);
+            final var entries = CacheManifest.read(manifestPath);
+            if (entries == null) {
+                return cachePath;
+            }
+
+            final var started = System.nanoTime();
+            final var damaged = CacheManifest.findDamaged(cachePath, entries);
+            if (damaged.isEmpty()) {
+                return cachePath;
+            }
+
+            Files.createDirectory(repairPath);
+            final var rootPath = repairPath.toRealPath();
+            final var selected = new HashSet<Path>();
+            for (final var entry : damaged) {
+                selected.add(rootPath.resolve(entry.path));
+            }
+
+            final var extractor = getExtractor(resource.getPath().getFileName().toString());
+            final var expectedDigest = getExpectedDigest(resource, digest);
+            final var source = expectedDigest == null
+                    ? new ResourceArchiveSource(resource)
+                    : new DigestArchiveSource(new ResourceArchiveSource(resource));
+            extractor.extract(source, repairPath, new ExtractionListener() {
+                @Override
+                public boolean isSelected(@Nonnull Path path) {
+                    return selected.contains(path);
+                }
+
+                @Override
+                public boolean isDigestRequired() {
+                    return listener.isDigestRequired();
+                }
+
+                @Override
+                public void fileExtracted(
+                        @Nonnull Path path,
+                        long size,
+                        @Nonnull Set<PosixFilePermission> permissions,
+                        @Nonnull FileTime lastModified,
+                        @Nullable byte[] digest
+                ) throws IOException {
+                    listener.fileExtracted(path, size, permissions, lastModified, digest);
+                }
+            });
+            checkDigest(resource, source, expectedDigest);
+
+            for (final var entry : damaged) {
+                if (entry.type == CacheManifest.DIRECTORY) {
+                    final var path = cachePath.resolve(entry.path);
+                    if (!Files.isDirectory(path, NOFOLLOW_LINKS)) {
+                        Files.deleteIfExists(path);
+                    }
+                    Files.createDirectories(path);
+                }
+            }
+
+            var bytes = 0L;
+            final var repaired = new HashMap<String, CacheManifest.Entry>();
+            for (final var entry : damaged) {
+                if (entry.type == CacheManifest.DIRECTORY) {
+                    continue;
+                }
+                final var path = cachePath.resolve(entry.path);
+                final var repairedPath = rootPath.resolve(entry.path);
+                if (!Files.exists(repairedPath, NOFOLLOW_LINKS)) {
+                    throw new IllegalStateException("Entry not found in archive: " + entry.path);
+                }
+                if (Files.isDirectory(path, NOFOLLOW_LINKS)) {
+                    deleteRecursively(path);
+                }
+                Files.createDirectories(path.getParent());
+                Files.move(repairedPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+                if (entry.type == CacheManifest.FILE) {
+                    repaired.put(entry.path, new CacheManifest.Entry(entry.type, entry.path, entry.size, entry.mode,
+                            getLastModifiedMillis(path), null));
+                    bytes += entry.size;
+                }
+            }
+
+            final var posix = Files.getFileStore(cachePath).supportsFileAttributeView(PosixFileAttributeView.class);
+            for (final var entry : damaged) {
+                if (entry.type == CacheManifest.DIRECTORY) {
+                    final var path = cachePath.resolve(entry.path);
+                    if (posix) {
+                        Files.setPosixFilePermissions(path, AbstractExtractor.fromMode(entry.mode));
+                    }
+                    Files.setLastModifiedTime(path, FileTime.fromMillis(entry.lastModifiedMillis));
+                }
+            }
+            deleteRecursively(repairPath);
+            CacheManifest.write(manifestPath,
+                    entries.stream().map(e -> repaired.getOrDefault(e.path, e)).toList());
+
+            extracted.put(cachePath,
+                    new LaunchTrace.Extraction(cachePath, System.nanoTime() - started, damaged.size(), bytes));
+            return cachePath;
+        } catch (Throwable e) {
+            try {
+                deleteRecursively(repairPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            throw new IllegalStateException("Failed to repair " + cachePath, e);
+        }
+    }
+
+    private static void checkDigest(
+            @Nonnull Resource resource,
+            @Nonnull ArchiveSource source,
+            @Nullable String expectedDigest
+    ) throws IOException, ExecutionException, InterruptedException {
+
+        if (expectedDigest != null) {
+            final var actual = HexFormat.of().formatHex(((DigestArchiveSource) source).digest());
+            if (!actual.equals(expectedDigest)) {
+                throw new IllegalStateException("Checksum mismatch for " + resource.getPath() + ": expected "
+                                                + expectedDigest + ", actual " + actual);
+            }
+        }
+    }
+
+    @Nullable
+    private String getExpectedDigest(@Nonnull Resource resource, @Nullable String digest)
+            throws IOException, ExecutionException, InterruptedException {
+
+        if (digest != null) {
+            return checkDigestValue(resource.getPath().toString(), digest);
+        }
+        final var sidecar = repository.resolve(repository.repoPath.relativize(resource.getPath()) + DIGEST_SUFFIX);
+        final String content;
+        try {
+            content = Files.readString(sidecar.getCompletableFuture().get(), UTF_8);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileNotFoundException || e.getCause() instanceof NoSuchFileException) {
+                return null;
+            }
+            throw e;
+        } catch (NoSuchFileException ignore) {
+            return null;
+        }
+        return checkDigestValue(sidecar.getPath().toString(), content.trim().split("\\s+")[0]);
+    }
+
+    @Nonnull
+    public static String checkDigestValue(@Nonnull String name, @Nonnull String value) {
+
+        final var digest = value.trim();
+        if (digest.length() != 64 || !digest.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Invalid SHA-256 digest in " + name + ": " + value);
+        }
+        return digest.toLowerCase(Locale.ROOT);
+    }
+
+    private static long getLastModifiedMillis(@Nonnull Path path) throws IOException {
+        return Files.getLastModifiedTime(path, NOFOLLOW_LINKS).toMillis();
+    }
+
+    @Nonnull
+    private Extractor getExtractor(@Nonnull String fileName) {
+
+        final var writerThreads = getIntProperty(configProperties, "launcher.tar.writerThreads", 0);
+        final var inFlightBytes = getSizeProperty(configProperties, "launcher.tar.inFlightBytes", 0x4000000);
+
+        if (!isArchive(fileName)) {
+            throw new IllegalArgumentException();
+        } else if (fileName.endsWith(".tar.gz")) {
+            return new TarGzExtractor(writerThreads, inFlightBytes);
+        } else if (fileName.endsWith(".tar.xz")) {
+            return new TarXzExtractor(writerThreads, inFlightBytes, decoderThreads);
+        } else if (fileName.endsWith(".tar.bz2")) {
+            return new TarBz2Extractor(writerThreads, inFlightBytes);
+        } else {
+            final var parallelism = getIntProperty(configProperties, "launcher.zip.parallelism", 1);
+            if (getBooleanProperty(configProperties, "launcher.zip.mapped", false)) {
+                return new MappedZipExtractor(parallelism);
+            }
+            return new ZipExtractor(parallelism);
+        }
+    }
+
+    private static class Task implements Runnable {
+
+        @Nonnull
+        private final Path cachePath;
+
+        @Nonnull
+        private final Supplier<Path> supplier;
+
+        @Nonnull
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+
+        private Task(@Nonnull Path cachePath, @Nonnull Supplier<Path> supplier) {
+            this.cachePath = cachePath;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+
+            final Path result;
+            try {
+                result = supplier.get();
+            } catch (Throwable e) {
+                release();
+                future.completeExceptionally(e);
+                return;
+            }
+            release();
+            future.complete(result);
+        }
+
+        private void release() {
+            synchronized (IN_FLIGHT) {
+                IN_FLIGHT.remove(cachePath, future);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static codes.writeonce.launcher.AbstractMain.getCommandConfigProperties;
+import static codes.writeonce.launcher.AbstractMain.getProfilePath;
+import static codes.writeonce.launcher.Utils.allOfFailFast;
+import static codes.writeonce.launcher.Utils.getConfigProperties;
+import static codes.writeonce.launcher.Utils.getIntProperty;
+import static codes.writeonce.launcher.Utils.getPidPath;
+import static codes.writeonce.launcher.Utils.isAlive;
+import static java.util.Arrays.asList;
+
+public class BatchStartMain {
+
+    private static final List<String> CACHE_PREFIXES = List.of(
+            "launcher.cache.",
+            "launcher.extract.",
+            "launcher.zip.",
+            "launcher.tar.",
+            "launcher.xz."
+    );
+
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        try (var repository = new Repository()) {
+            execute(repository, args, System.getenv(), System.out);
+        }
+    }
+
+    public static void execute(
+            @Nonnull Repository repository,
+            @Nonnull String[] args,
+            @Nonnull Map<String, String> environment,
+            @Nonnull PrintStream out
+    ) throws IOException, ExecutionException, InterruptedException {
+
+        final var profile = args[0];
+        final var requested = asList(args).subList(1, args.length);
+
+        final var commandsPath = getProfilePath(repository, profile).resolve("commands");
+        final var commands = new TreeSet<String>();
+        if (requested.isEmpty()) {
+            try (var paths = Files.list(commandsPath)) {
+                paths.filter(Files::isRegularFile)
+                        .map(e -> e.getFileName().toString())
+                        .filter(e -> !e.endsWith(".properties"))
+                        .forEach(commands::add);
+            }
+        } else {
+            commands.addAll(requested);
+        }
+
+        final var configs = new HashMap<String, Properties>();
+        final var dependsOn = new HashMap<String, Set<String>>();
+        final var pending = new ArrayList<>(commands);
+        while (!pending.isEmpty()) {
+            final var command = pending.remove(pending.size() - 1);
+            if (configs.containsKey(command)) {
+                continue;
+            }
+            if (!Files.isRegularFile(commandsPath.resolve(command))) {
+                throw new IllegalArgumentException("Command not found: " + profile + " " + command);
+            }
+            final var configProperties = getCommandConfigProperties(repository, profile, command);
+            configs.put(command, configProperties);
+            final var dependencies = getDependsOn(configProperties.getProperty("depends.on", ""));
+            dependsOn.put(command, dependencies);
+            for (final var dependency : dependencies) {
+                if (commands.add(dependency)) {
+                    pending.add(dependency);
+                }
+            }
+        }
+
+        final var waves = getWaves(dependsOn);
+
+        final var profileConfigPath = getProfilePath(repository, profile).resolve("conf").resolve("config.properties");
+        final var profileConfigProperties = getConfigProperties(profileConfigPath);
+        for (final var command : commands) {
+            checkCacheProperties(profileConfigProperties, configs.get(command), command);
+        }
+
+        final var parallelism = getIntProperty(profileConfigProperties, "launcher.batch.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid batch parallelism: " + parallelism);
+        }
+        final var main = new StartMain(environment);
+        final var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, commands.size())));
+        final var started = System.nanoTime();
+
+        try (var attachmentCache = new AttachmentCache(repository, profileConfigProperties)) {
+
+            final var launches = new HashMap<String, CompletableFuture<AbstractMain.Launch>>();
+            for (final var command : commands) {
+                if (isAlive(getPidPath(repository, profile, command))) {
+                    out.println("Command " + command + " is already running");
+                    launches.put(command, CompletableFuture.completedFuture(null));
+                    continue;
+                }
+                launches.put(command, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return main.prepare(repository, attachmentCache, configs.get(command), profile, command,
+                                List.of());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            for (var i = 0; i < waves.size(); i++) {
+                final var wave = waves.get(i);
+                final var waveStarted = System.nanoTime();
+                final var futures = new ArrayList<CompletableFuture<?>>();
+                for (final var command : wave) {
+                    futures.add(launches.get(command).thenAcceptAsync(launch -> {
+                        if (launch == null) {
+                            return;
+                        }
+                        final var commandStarted = System.nanoTime();
+                        try {
+                            main.start(launch, out);
+                        } catch (IOException | ExecutionException e) {
+                            throw new CompletionException(e);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new CompletionException(e);
+                        }
+                        out.println("Started " + command + " in "
+                                    + (System.nanoTime() - commandStarted) / 1_000_000 + " ms");
+                    }, executor));
+                }
+                try {
+                    allOfFailFast(futures).get();
+                } catch (ExecutionException e) {
+                    out.println("Wave " + (i + 1) + " failed, remaining commands are not started");
+                    throw e;
+                }
+                out.println("Wave " + (i + 1) + " " + wave + " started in "
+                            + (System.nanoTime() - waveStarted) / 1_000_000 + " ms");
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        out.println("Started " + commands.size() + " commands in " + waves.size() + " waves in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+
+    private static void checkCacheProperties(
+            @Nonnull Properties profileConfigProperties,
+            @Nonnull Properties configProperties,
+            @Nonnull String command
+    ) {
+        for (final var name : configProperties.stringPropertyNames()) {
+            if (CACHE_PREFIXES.stream().anyMatch(name::startsWith)
+                && !configProperties.getProperty(name).equals(profileConfigProperties.getProperty(name))) {
+                throw new IllegalArgumentException(
+                        "Attachment cache property must be set in the profile config for batch start: " + command + " "
+                        + name);
+            }
+        }
+    }
+
+    @Nonnull
+    private static Set<String> getDependsOn(@Nonnull String value) {
+
+        final var result = new LinkedHashSet<String>();
+        for (final var name : value.split("[,\\s]+")) {
+            if (!name.isEmpty()) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static List<List<String>> getWaves(@Nonnull Map<String, Set<String>> dependsOn) {
+
+        final var waves = new ArrayList<List<String>>();
+        final var done = new TreeSet<String>();
+        final var remained = new TreeSet<>(dependsOn.keySet());
+
+        while (!remained.isEmpty()) {
+            final var wave = new ArrayList<String>();
+            for (final var command : remained) {
+                if (done.containsAll(dependsOn.get(command))) {
+                    wave.add(command);
+                }
+            }
+            if (wave.isEmpty()) {
+                throw new IllegalArgumentException("Dependency cycle detected between commands: " + remained);
+            }
+            wave.forEach(remained::remove);
+            done.addAll(wave);
+            waves.add(wave);
+        }
+        return waves;
+    }
+}
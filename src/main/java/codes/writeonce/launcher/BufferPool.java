@@ -0,0 +1,83 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public final class BufferPool {
+
+    public static final int SMALL = 0x2000;
+
+    public static final int MEDIUM = 0x10000;
+
+    public static final int LARGE = 0x100000;
+
+    public static final BufferPool SHARED = new BufferPool();
+
+    private final Tier[] tiers = {
+            new Tier(SMALL, 64),
+            new Tier(MEDIUM, 32),
+            new Tier(LARGE, 16),
+    };
+
+    private final ArrayBlockingQueue<ByteBuffer> directBuffers = new ArrayBlockingQueue<>(16);
+
+    public int sizeFor(int minSize) {
+
+        for (final var tier : tiers) {
+            if (tier.size >= minSize) {
+                return tier.size;
+            }
+        }
+        return minSize;
+    }
+
+    @Nonnull
+    public byte[] acquire(int minSize) {
+
+        for (final var tier : tiers) {
+            if (tier.size >= minSize) {
+                final var buffer = tier.buffers.poll();
+                return buffer == null ? new byte[tier.size] : buffer;
+            }
+        }
+        return new byte[minSize];
+    }
+
+    public void release(@Nonnull byte[] buffer) {
+
+        for (final var tier : tiers) {
+            if (tier.size == buffer.length) {
+                tier.buffers.offer(buffer);
+                return;
+            }
+        }
+    }
+
+    @Nonnull
+    public ByteBuffer acquireDirect() {
+
+        final var buffer = directBuffers.poll();
+        return buffer == null ? ByteBuffer.allocateDirect(LARGE) : buffer;
+    }
+
+    public void release(@Nonnull ByteBuffer buffer) {
+
+        if (buffer.isDirect() && buffer.capacity() == LARGE) {
+            directBuffers.offer(buffer.clear());
+        }
+    }
+
+    private static class Tier {
+
+        public final int size;
+
+        @Nonnull
+        public final ArrayBlockingQueue<byte[]> buffers;
+
+        public Tier(int size, int capacity) {
+            this.size = size;
+            this.buffers = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
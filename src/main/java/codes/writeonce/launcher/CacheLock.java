@@ -0,0 +1,128 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static codes.writeonce.launcher.AttachmentCache.getCacheRootPath;
+import static codes.writeonce.launcher.AttachmentCache.openLock;
+
+public class CacheLock implements AutoCloseable {
+
+    private static final Map<Path, State> STATES = new HashMap<>();
+
+    @Nonnull
+    private final State state;
+
+    private final boolean exclusive;
+
+    private boolean closed;
+
+    private CacheLock(@Nonnull State state, boolean exclusive) {
+        this.state = state;
+        this.exclusive = exclusive;
+    }
+
+    @Nonnull
+    public static CacheLock shared(@Nonnull Repository repository) throws IOException {
+
+        final var state = getState(repository);
+        synchronized (state) {
+            while (state.exclusive) {
+                await(state);
+            }
+            if (state.shared == 0) {
+                final var channel = openLock(repository);
+                try {
+                    channel.lock(0, Long.MAX_VALUE, true);
+                } catch (Throwable e) {
+                    channel.close();
+                    throw e;
+                }
+                state.channel = channel;
+            }
+            state.shared++;
+        }
+        return new CacheLock(state, false);
+    }
+
+    @Nonnull
+    public static CacheLock exclusive(@Nonnull Repository repository) throws IOException {
+
+        final var state = getState(repository);
+        synchronized (state) {
+            while (state.exclusive || state.shared > 0) {
+                await(state);
+            }
+            state.exclusive = true;
+        }
+        try {
+            final var channel = openLock(repository);
+            try {
+                channel.lock();
+            } catch (Throwable e) {
+                channel.close();
+                throw e;
+            }
+            synchronized (state) {
+                state.channel = channel;
+            }
+        } catch (Throwable e) {
+            synchronized (state) {
+                state.exclusive = false;
+                state.notifyAll();
+            }
+            throw e;
+        }
+        return new CacheLock(state, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        synchronized (state) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (exclusive || --state.shared == 0) {
+                state.exclusive = false;
+                state.notifyAll();
+                final var channel = state.channel;
+                state.channel = null;
+                channel.close();
+            }
+        }
+    }
+
+    @Nonnull
+    private static State getState(@Nonnull Repository repository) {
+        synchronized (STATES) {
+            return STATES.computeIfAbsent(getCacheRootPath(repository).toAbsolutePath().normalize(), k -> new State());
+        }
+    }
+
+    private static void await(@Nonnull State state) throws InterruptedIOException {
+        try {
+            state.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the attachment cache lock");
+        }
+    }
+
+    private static class State {
+
+        private int shared;
+
+        private boolean exclusive;
+
+        private FileChannel channel;
+    }
+}
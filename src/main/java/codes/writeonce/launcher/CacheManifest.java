@@ -0,0 +1,216 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotLinkException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static codes.writeonce.launcher.AbstractExtractor.toMode;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+public class CacheManifest {
+
+    public static final char FILE = 'f';
+
+    public static final char DIRECTORY = 'd';
+
+    public static final char SYMLINK = 'l';
+
+    @Nonnull
+    public static Path getManifestPath(@Nonnull Path cachePath) {
+        return cachePath.getParent().resolve(cachePath.getFileName().toString() + ".manifest");
+    }
+
+    public static void write(@Nonnull Path manifestPath, @Nonnull Collection<Entry> entries) throws IOException {
+
+        final var sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(e -> e.path));
+
+        final var builder = new StringBuilder();
+        for (final var entry : sorted) {
+            builder.append(entry.type).append('\t')
+                    .append(Integer.toOctalString(entry.mode)).append('\t')
+                    .append(entry.size).append('\t')
+                    .append(entry.lastModifiedMillis).append('\t');
+            appendEscaped(builder, entry.path);
+            if (entry.target != null) {
+                builder.append('\t');
+                appendEscaped(builder, entry.target);
+            }
+            builder.append('\n');
+        }
+
+        final var tmpPath = Files.createTempFile(manifestPath.getParent(), manifestPath.getFileName() + ".", ".tmp");
+        try {
+            Files.writeString(tmpPath, builder, UTF_8);
+            Files.move(tmpPath, manifestPath, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+    }
+
+    @Nullable
+    public static List<Entry> read(@Nonnull Path manifestPath) throws IOException {
+
+        final String content;
+        try {
+            content = Files.readString(manifestPath, UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        final var lines = content.split("\n");
+        final var entries = new ArrayList<Entry>(lines.length);
+        for (final var line : lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final var fields = line.split("\t", -1);
+            if (fields.length == 4) {
+                // written before directories and symlinks were recorded
+                entries.add(new Entry(FILE, unescape(fields[3]), Long.parseLong(fields[1]),
+                        Integer.parseInt(fields[0], 8), Long.parseLong(fields[2]), null));
+                continue;
+            }
+            final var type = fields[0].length() == 1 ? fields[0].charAt(0) : 0;
+            if (fields.length != (type == SYMLINK ? 6 : type == FILE || type == DIRECTORY ? 5 : -1)) {
+                throw new IllegalArgumentException("Invalid manifest line in " + manifestPath + ": " + line);
+            }
+            entries.add(new Entry(type, unescape(fields[4]), Long.parseLong(fields[2]),
+                    Integer.parseInt(fields[1], 8), Long.parseLong(fields[3]),
+                    type == SYMLINK ? unescape(fields[5]) : null));
+        }
+        return entries;
+    }
+
+    private static void appendEscaped(@Nonnull StringBuilder builder, @Nonnull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            switch (c) {
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> builder.append(c);
+            }
+        }
+    }
+
+    @Nonnull
+    private static String unescape(@Nonnull String value) {
+
+        final var builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                switch (value.charAt(++i)) {
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    default -> builder.append('\\');
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Nonnull
+    public static List<Entry> findDamaged(@Nonnull Path cachePath, @Nonnull List<Entry> entries) throws IOException {
+
+        final var posix = Files.getFileStore(cachePath).supportsFileAttributeView(PosixFileAttributeView.class);
+        try {
+            return entries.parallelStream()
+                    .filter(entry -> isDamaged(cachePath.resolve(entry.path), entry, posix))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isDamaged(@Nonnull Path path, @Nonnull Entry entry, boolean posix) {
+
+        try {
+            if (entry.type == SYMLINK) {
+                return !Files.isSymbolicLink(path) || !Files.readSymbolicLink(path).toString().equals(entry.target);
+            }
+            final BasicFileAttributes attributes;
+            if (posix) {
+                final var posixAttributes = Files.readAttributes(path, PosixFileAttributes.class, NOFOLLOW_LINKS);
+                if (toMode(posixAttributes.permissions()) != entry.mode) {
+                    return true;
+                }
+                attributes = posixAttributes;
+            } else {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+            }
+            if (entry.type == DIRECTORY) {
+                return !attributes.isDirectory();
+            }
+            return !attributes.isRegularFile()
+                   || attributes.size() != entry.size
+                   || attributes.lastModifiedTime().toMillis() != entry.lastModifiedMillis;
+        } catch (NoSuchFileException | NotLinkException e) {
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class Entry {
+
+        public final char type;
+
+        @Nonnull
+        public final String path;
+
+        public final long size;
+
+        public final int mode;
+
+        public final long lastModifiedMillis;
+
+        @Nullable
+        public final String target;
+
+        public Entry(
+                char type,
+                @Nonnull String path,
+                long size,
+                int mode,
+                long lastModifiedMillis,
+                @Nullable String target
+        ) {
+            this.type = type;
+            this.path = path;
+            this.size = size;
+            this.mode = mode;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.target = target;
+        }
+    }
+
+    private CacheManifest() {
+        // empty
+    }
+}
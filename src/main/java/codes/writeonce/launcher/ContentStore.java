@@ -0,0 +1,99 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+
+import static codes.writeonce.launcher.AbstractExtractor.toMode;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+public class ContentStore implements ExtractionListener {
+
+    @Nonnull
+    private final Path objectsPath;
+
+    public ContentStore(@Nonnull Path objectsPath) {
+        this.objectsPath = requireNonNull(objectsPath);
+    }
+
+    @Nonnull
+    public Path getObjectsPath() {
+        return objectsPath;
+    }
+
+    @Override
+    public boolean isDigestRequired() {
+        return true;
+    }
+
+    @Override
+    public void fileExtracted(
+            @Nonnull Path path,
+            long size,
+            @Nonnull Set<PosixFilePermission> permissions,
+            @Nonnull FileTime lastModified,
+            @Nullable byte[] digest
+    ) throws IOException {
+
+        if (digest == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        final var hex = HexFormat.of().formatHex(digest);
+        final var objectPath = objectsPath.resolve(hex.substring(0, 2))
+                .resolve(hex + "-" + Integer.toOctalString(toMode(permissions)));
+
+        Files.createDirectories(objectPath.getParent());
+        try {
+            Files.createLink(objectPath, path);
+            return;
+        } catch (FileAlreadyExistsException e) {
+            // already stored
+        }
+
+        if (Files.size(objectPath) != size) {
+            final var replacementPath = getStagingPath(objectPath);
+            Files.createLink(replacementPath, path);
+            Files.move(replacementPath, objectPath, ATOMIC_MOVE, REPLACE_EXISTING);
+            return;
+        }
+
+        final var linkPath = getStagingPath(objectPath);
+        try {
+            Files.createLink(linkPath, objectPath);
+        } catch (FileSystemException e) {
+            // cannot link, e.g. too many links: keep the private copy
+            return;
+        }
+        try {
+            Files.move(linkPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(linkPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    private static Path getStagingPath(@Nonnull Path objectPath) {
+        return objectPath.resolveSibling(objectPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+}
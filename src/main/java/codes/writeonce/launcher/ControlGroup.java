@@ -0,0 +1,345 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ControlGroup {
+
+    private static final String PREFIX = "launcher.cgroup.";
+
+    @Nonnull
+    private final Path path;
+
+    private ControlGroup(@Nonnull Path path) {
+        this.path = path;
+    }
+
+    @Nonnull
+    public Path getPath() {
+        return path;
+    }
+
+    @Nonnull
+    public static Path getRecordPath(@Nonnull Path commandPath) {
+        return commandPath.resolve("run").resolve("cgroup");
+    }
+
+    @Nullable
+    public static ControlGroup create(@Nonnull Properties configProperties, @Nonnull Path commandPath)
+            throws IOException {
+
+        final var root = configProperties.getProperty(PREFIX + "root");
+        if (root == null || root.isBlank()) {
+            Files.deleteIfExists(getRecordPath(commandPath));
+            return null;
+        }
+
+        final var settings = new ArrayList<Setting>();
+        settings.add(new Setting("memory", "memory.max", getMemory(configProperties, "memory.max"), "max"));
+        settings.add(new Setting("memory", "memory.high", getMemory(configProperties, "memory.high"), "max"));
+        settings.add(new Setting("cpu", "cpu.max", getCpuMax(configProperties), "max"));
+        settings.add(new Setting("cpu", "cpu.weight", getWeight(configProperties, "cpu.weight"), "100"));
+        final var ioWeight = getWeight(configProperties, "io.weight");
+        settings.add(new Setting("io", "io.weight", ioWeight == null ? null : "default " + ioWeight, "default 100"));
+
+        final var controllers = new ArrayList<String>();
+        for (final var setting : settings) {
+            if (setting.value != null && !controllers.contains(setting.controller)) {
+                controllers.add(setting.controller);
+            }
+        }
+
+        final var rootPath = Path.of(root.trim()).toAbsolutePath();
+        if (!Files.isDirectory(rootPath)) {
+            throw new IllegalStateException("Control group root not found: " + rootPath);
+        }
+        final var profilePath = rootPath.resolve(commandPath.getParent().getFileName().toString());
+        final var path = profilePath.resolve(commandPath.getFileName().toString());
+        enableControllers(rootPath, controllers);
+        Files.createDirectories(profilePath);
+        enableControllers(profilePath, controllers);
+        Files.createDirectories(path);
+
+        for (final var setting : settings) {
+            final var settingPath = path.resolve(setting.file);
+            if (setting.value != null) {
+                Files.writeString(settingPath, setting.value, UTF_8);
+            } else if (Files.exists(settingPath)) {
+                Files.writeString(settingPath, setting.defaultValue, UTF_8);
+            }
+        }
+
+        return new ControlGroup(path);
+    }
+
+    public void attach(long pid, @Nonnull Path commandPath) throws IOException {
+
+        Files.writeString(path.resolve("cgroup.procs"), String.valueOf(pid), UTF_8);
+        Files.writeString(getRecordPath(commandPath), path.toString(), UTF_8);
+    }
+
+    @Nullable
+    public static Stats readStats(@Nonnull Path commandPath) throws IOException {
+
+        final var recordPath = getRecordPath(commandPath);
+        if (!Files.exists(recordPath)) {
+            return null;
+        }
+        final var path = Path.of(Files.readString(recordPath, UTF_8).trim());
+        if (!Files.isDirectory(path)) {
+            return null;
+        }
+
+        final var cpuStat = readKeyed(path.resolve("cpu.stat"));
+        final var memoryEvents = readKeyed(path.resolve("memory.events"));
+
+        var ioReadBytes = -1L;
+        var ioWriteBytes = -1L;
+        final var ioStatPath = path.resolve("io.stat");
+        if (Files.exists(ioStatPath)) {
+            ioReadBytes = 0;
+            ioWriteBytes = 0;
+            for (final var line : Files.readAllLines(ioStatPath, UTF_8)) {
+                for (final var field : line.split(" ")) {
+                    if (field.startsWith("rbytes=")) {
+                        ioReadBytes += Long.parseLong(field.substring("rbytes=".length()));
+                    } else if (field.startsWith("wbytes=")) {
+                        ioWriteBytes += Long.parseLong(field.substring("wbytes=".length()));
+                    }
+                }
+            }
+        }
+
+        return new Stats(
+                path,
+                readLong(path.resolve("memory.current")),
+                readLong(path.resolve("memory.peak")),
+                readString(path.resolve("memory.max")),
+                readString(path.resolve("memory.high")),
+                memoryEvents.getOrDefault("high", -1L),
+                memoryEvents.getOrDefault("oom_kill", -1L),
+                cpuStat.getOrDefault("usage_usec", -1L),
+                cpuStat.getOrDefault("nr_throttled", -1L),
+                cpuStat.getOrDefault("throttled_usec", -1L),
+                ioReadBytes,
+                ioWriteBytes
+        );
+    }
+
+    private static void enableControllers(@Nonnull Path path, @Nonnull List<String> controllers) throws IOException {
+
+        final var subtreeControlPath = path.resolve("cgroup.subtree_control");
+        final var enabled = Files.exists(subtreeControlPath)
+                ? List.of(Files.readString(subtreeControlPath, UTF_8).trim().split(" "))
+                : List.<String>of();
+        for (final var controller : controllers) {
+            if (!enabled.contains(controller)) {
+                Files.writeString(subtreeControlPath, "+" + controller, UTF_8);
+            }
+        }
+    }
+
+    @Nullable
+    private static String getMemory(@Nonnull Properties configProperties, @Nonnull String file) {
+
+        final var value = getValue(configProperties, file);
+        if (value == null || value.equals("max")) {
+            return value;
+        }
+        try {
+            return String.valueOf(parseSize(value));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid size config property: " + PREFIX + file + "=" + value, e);
+        }
+    }
+
+    @Nullable
+    private static String getCpuMax(@Nonnull Properties configProperties) {
+
+        final var value = getValue(configProperties, "cpu.max");
+        if (value == null) {
+            return null;
+        }
+        final var fields = value.split("\\s+");
+        try {
+            if (fields.length > 2) {
+                throw new IllegalArgumentException("Too many fields");
+            }
+            if (!fields[0].equals("max") && Long.parseLong(fields[0]) <= 0
+                || fields.length == 2 && Long.parseLong(fields[1]) <= 0) {
+                throw new IllegalArgumentException("Non-positive value");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid config property: " + PREFIX + "cpu.max=" + value, e);
+        }
+        return String.join(" ", fields);
+    }
+
+    @Nullable
+    private static String getWeight(@Nonnull Properties configProperties, @Nonnull String file) {
+
+        final var value = getValue(configProperties, file);
+        if (value == null) {
+            return null;
+        }
+        try {
+            final var weight = Integer.parseInt(value);
+            if (weight < 1 || weight > 10000) {
+                throw new IllegalArgumentException("Config property out of range: " + PREFIX + file + "=" + value);
+            }
+            return String.valueOf(weight);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer config property: " + PREFIX + file + "=" + value, e);
+        }
+    }
+
+    @Nullable
+    private static String getValue(@Nonnull Properties configProperties, @Nonnull String file) {
+        final var value = configProperties.getProperty(PREFIX + file);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @Nonnull
+    private static Map<String, Long> readKeyed(@Nonnull Path path) throws IOException {
+
+        final var result = new LinkedHashMap<String, Long>();
+        try {
+            for (final var line : Files.readAllLines(path, UTF_8)) {
+                final var fields = line.split(" ");
+                if (fields.length == 2) {
+                    result.put(fields[0], Long.parseLong(fields[1]));
+                }
+            }
+        } catch (NoSuchFileException ignore) {
+            // controller is not enabled
+        }
+        return result;
+    }
+
+    private static long readLong(@Nonnull Path path) throws IOException {
+        final var value = readString(path);
+        return value == null || value.equals("max") ? -1 : Long.parseLong(value);
+    }
+
+    @Nullable
+    private static String readString(@Nonnull Path path) throws IOException {
+        try {
+            return Files.readString(path, UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static class Setting {
+
+        @Nonnull
+        private final String controller;
+
+        @Nonnull
+        private final String file;
+
+        @Nullable
+        private final String value;
+
+        @Nonnull
+        private final String defaultValue;
+
+        private Setting(
+                @Nonnull String controller,
+                @Nonnull String file,
+                @Nullable String value,
+                @Nonnull String defaultValue
+        ) {
+            this.controller = controller;
+            this.file = file;
+            this.value = value;
+            this.defaultValue = defaultValue;
+        }
+    }
+
+    public static class Stats {
+
+        @Nonnull
+        public final Path path;
+
+        public final long memoryCurrent;
+
+        public final long memoryPeak;
+
+        @Nullable
+        public final String memoryMax;
+
+        @Nullable
+        public final String memoryHigh;
+
+        public final long memoryHighEvents;
+
+        public final long oomKills;
+
+        public final long cpuUsageMicros;
+
+        public final long throttledPeriods;
+
+        public final long throttledMicros;
+
+        public final long ioReadBytes;
+
+        public final long ioWriteBytes;
+
+        public Stats(
+                @Nonnull Path path,
+                long memoryCurrent,
+                long memoryPeak,
+                @Nullable String memoryMax,
+                @Nullable String memoryHigh,
+                long memoryHighEvents,
+                long oomKills,
+                long cpuUsageMicros,
+                long throttledPeriods,
+                long throttledMicros,
+                long ioReadBytes,
+                long ioWriteBytes
+        ) {
+            this.path = path;
+            this.memoryCurrent = memoryCurrent;
+            this.memoryPeak = memoryPeak;
+            this.memoryMax = memoryMax;
+            this.memoryHigh = memoryHigh;
+            this.memoryHighEvents = memoryHighEvents;
+            this.oomKills = oomKills;
+            this.cpuUsageMicros = cpuUsageMicros;
+            this.throttledPeriods = throttledPeriods;
+            this.throttledMicros = throttledMicros;
+            this.ioReadBytes = ioReadBytes;
+            this.ioWriteBytes = ioWriteBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "mem=" + format(memoryCurrent) + "/" + (memoryMax == null ? "-" : memoryMax)
+                   + " peak=" + format(memoryPeak)
+                   + " high=" + format(memoryHighEvents)
+                   + " oom=" + format(oomKills)
+                   + " cpu=" + (cpuUsageMicros < 0 ? "-" : cpuUsageMicros / 1000 + "ms")
+                   + " throttled=" + (throttledMicros < 0 ? "-" : throttledMicros / 1000 + "ms")
+                   + " io=" + format(ioReadBytes) + "/" + format(ioWriteBytes);
+        }
+
+        @Nonnull
+        private static String format(long value) {
+            return value < 0 ? "-" : String.valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class DaemonMain {
+
+    private static final int MAX_REQUEST_SIZE = 0x100000;
+
+    private static final Map<String, Command> COMMANDS = Map.of(
+            "start", withEnvironment(StartMain::execute),
+            "batch-start", withEnvironment(BatchStartMain::execute),
+            "prepare", withEnvironment(DryRunMain::execute),
+            "stop", (repository, args, environment, out) -> StopMain.execute(repository, args, out),
+            "kill", (repository, args, environment, out) -> KillMain.execute(repository, args, out),
+            "wait", (repository, args, environment, out) -> WaitMain.execute(repository, args, out),
+            "ready", (repository, args, environment, out) -> ReadyMain.execute(repository, args, out),
+            "status", (repository, args, environment, out) -> StatusMain.execute(repository, args, out),
+            "gc", (repository, args, environment, out) -> GcMain.execute(repository, args, out)
+    );
+
+    public static void main(String[] args) throws IOException {
+
+        final var socketPath = Path.of(args[0]).toAbsolutePath();
+        final var address = UnixDomainSocketAddress.of(socketPath);
+
+        if (Files.exists(socketPath)) {
+            if (isListening(address)) {
+                throw new IllegalStateException("Launcher daemon is already running: " + socketPath);
+            }
+            Files.delete(socketPath);
+        }
+        Files.createDirectories(socketPath.getParent());
+        Files.setPosixFilePermissions(socketPath.getParent(), PosixFilePermissions.fromString("rwx------"));
+
+        final var executor = Executors.newCachedThreadPool();
+
+        try (var repository = new Repository();
+             var serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+            serverChannel.bind(address);
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+            System.out.println("Launcher daemon listening on " + socketPath);
+
+            while (true) {
+                final var channel = serverChannel.accept();
+                executor.execute(() -> handle(repository, channel));
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private static boolean isListening(@Nonnull UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void handle(@Nonnull Repository repository, @Nonnull SocketChannel channel) {
+
+        try (channel;
+             var out = new PrintStream(Channels.newOutputStream(channel), true, UTF_8)) {
+            var exitCode = 1;
+            try {
+                final var request = readRequest(channel);
+                if (request.isEmpty()) {
+                    throw new IllegalArgumentException("Empty launcher daemon request");
+                }
+                final var command = COMMANDS.get(request.get(0));
+                if (command == null) {
+                    throw new IllegalArgumentException("Unknown launcher daemon command: " + request.get(0));
+                }
+                final var argCount = request.size() < 2 ? -1 : Integer.parseInt(request.get(1));
+                if (argCount < 0 || argCount > request.size() - 2) {
+                    throw new IllegalArgumentException("Malformed launcher daemon request");
+                }
+                final var environment = new HashMap<String, String>();
+                for (final var entry : request.subList(2 + argCount, request.size())) {
+                    final var separator = entry.indexOf('=');
+                    if (separator > 0) {
+                        environment.put(entry.substring(0, separator), entry.substring(separator + 1));
+                    }
+                }
+                command.execute(repository, request.subList(2, 2 + argCount).toArray(new String[0]), environment,
+                        out);
+                exitCode = 0;
+            } catch (Throwable e) {
+                e.printStackTrace(out);
+            }
+            out.println("\u0001exit=" + exitCode);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Nonnull
+    private static ArrayList<String> readRequest(@Nonnull SocketChannel channel) throws IOException {
+
+        final var request = new ArrayList<String>();
+        final var field = new ByteArrayOutputStream();
+        final var buffer = ByteBuffer.allocate(0x1000);
+        var total = 0;
+
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            total += buffer.remaining();
+            if (total > MAX_REQUEST_SIZE) {
+                throw new IllegalArgumentException("Launcher daemon request too large");
+            }
+            while (buffer.hasRemaining()) {
+                final var b = buffer.get();
+                if (b != 0) {
+                    field.write(b);
+                } else {
+                    request.add(field.toString(UTF_8));
+                    field.reset();
+                }
+            }
+            buffer.clear();
+        }
+
+        if (field.size() != 0) {
+            request.add(field.toString(UTF_8));
+        }
+        return request;
+    }
+
+    @Nonnull
+    private static Command withEnvironment(@Nonnull Command command) {
+        return (repository, args, environment, out) -> {
+            if (environment.isEmpty()) {
+                throw new IllegalArgumentException("Launcher daemon request has no caller environment");
+            }
+            command.execute(repository, args, environment, out);
+        };
+    }
+
+    private interface Command {
+
+        void execute(
+                @Nonnull Repository repository,
+                @Nonnull String[] args,
+                @Nonnull Map<String, String> environment,
+                @Nonnull PrintStream out
+        ) throws Exception;
+    }
+}
@@ -0,0 +1,100 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+
+import static codes.writeonce.launcher.AbstractExtractor.DIGEST_ALGORITHM;
+import static java.util.Objects.requireNonNull;
+
+public class DigestArchiveSource implements ArchiveSource {
+
+    private static final int BUFFER_SIZE = 0x10000;
+
+    @Nonnull
+    private final ArchiveSource source;
+
+    @Nonnull
+    private final MessageDigest messageDigest;
+
+    private boolean consumed;
+
+    public DigestArchiveSource(@Nonnull ArchiveSource source) {
+        this.source = requireNonNull(source);
+        this.messageDigest = newMessageDigest();
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return source.getName();
+    }
+
+    @Nonnull
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+
+        if (consumed) {
+            throw new IllegalStateException("Archive stream already consumed: " + source.getName());
+        }
+        consumed = true;
+        return new FilterInputStream(new DigestInputStream(source.getInputStream(), messageDigest)) {
+
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    final var buffer = new byte[BUFFER_SIZE];
+                    while (in.read(buffer) != -1) {
+                        // drain the rest of the archive into the digest
+                    }
+                } finally {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    public Path getFile() throws ExecutionException, InterruptedException {
+        return source.getFile();
+    }
+
+    @Nonnull
+    public synchronized byte[] digest() throws IOException, ExecutionException, InterruptedException {
+
+        if (!consumed) {
+            consumed = true;
+            try (var in = Files.newInputStream(source.getFile())) {
+                final var buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    messageDigest.update(buffer, 0, n);
+                }
+            }
+        }
+        return messageDigest.digest();
+    }
+
+    @Nonnull
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
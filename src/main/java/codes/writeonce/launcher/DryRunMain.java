@@ -1,7 +1,12 @@
 package codes.writeonce.launcher;
 
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 
@@ -11,6 +16,23 @@ public class DryRunMain extends AbstractMain {
         new DryRunMain().run(args);
     }
 
+    public static void execute(
+            @Nonnull Repository repository,
+            @Nonnull String[] args,
+            @Nonnull Map<String, String> environment,
+            @Nonnull PrintStream out
+    ) throws IOException, ExecutionException, InterruptedException {
+        new DryRunMain(environment).run(repository, args, out);
+    }
+
+    public DryRunMain() {
+        // empty
+    }
+
+    public DryRunMain(@Nonnull Map<String, String> environment) {
+        super(environment);
+    }
+
     @Override
     protected void doStart(
             Path pidPath,
@@ -20,7 +42,8 @@ public class DryRunMain extends AbstractMain {
             String javaCmd,
             Path commandPath,
             Path logPath,
-            Path workPath
+            Path workPath,
+            PrintStream out
     ) {
         // empty
     }
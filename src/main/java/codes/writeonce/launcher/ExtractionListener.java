@@ -0,0 +1,46 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+public interface ExtractionListener {
+
+    ExtractionListener NONE = new ExtractionListener() {
+        // empty
+    };
+
+    default boolean isDigestRequired() {
+        return false;
+    }
+
+    default boolean isSelected(@Nonnull Path path) {
+        return true;
+    }
+
+    default void fileExtracted(
+            @Nonnull Path path,
+            long size,
+            @Nonnull Set<PosixFilePermission> permissions,
+            @Nonnull FileTime lastModified,
+            @Nullable byte[] digest
+    ) throws IOException {
+        // empty
+    }
+
+    default void directoryExtracted(
+            @Nonnull Path path,
+            @Nonnull Set<PosixFilePermission> permissions,
+            @Nonnull FileTime lastModified
+    ) throws IOException {
+        // empty
+    }
+
+    default void symlinkExtracted(@Nonnull Path path, @Nonnull Path target) throws IOException {
+        // empty
+    }
+}
@@ -1,7 +1,5 @@
 package codes.writeonce.launcher;
 
-import codes.writeonce.repository.Resource;
-
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -9,6 +7,11 @@ import java.util.concurrent.ExecutionException;
 
 public interface Extractor {
 
-    void extract(@Nonnull Resource resource, @Nonnull Path destinationPath)
+    default void extract(@Nonnull ArchiveSource source, @Nonnull Path destinationPath)
+            throws IOException, ExecutionException, InterruptedException {
+        extract(source, destinationPath, ExtractionListener.NONE);
+    }
+
+    void extract(@Nonnull ArchiveSource source, @Nonnull Path destinationPath, @Nonnull ExtractionListener listener)
             throws IOException, ExecutionException, InterruptedException;
 }
@@ -0,0 +1,37 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+
+public class FileArchiveSource implements ArchiveSource {
+
+    @Nonnull
+    private final Path path;
+
+    public FileArchiveSource(@Nonnull Path path) {
+        this.path = requireNonNull(path);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Nonnull
+    @Override
+    public Path getFile() {
+        return path;
+    }
+}
@@ -0,0 +1,226 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static codes.writeonce.launcher.AttachmentCache.getCacheRootPath;
+import static codes.writeonce.launcher.AttachmentCache.getObjectsPath;
+import static codes.writeonce.launcher.AttachmentCache.getUsedPath;
+import static codes.writeonce.launcher.AttachmentCache.isArchive;
+import static codes.writeonce.launcher.CacheManifest.getManifestPath;
+import static codes.writeonce.launcher.Utils.deleteRecursively;
+import static codes.writeonce.launcher.Utils.isAlive;
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+public class GcMain {
+
+    public static void main(String[] args) throws IOException {
+        try (var repository = new Repository()) {
+            execute(repository, args, System.out);
+        }
+    }
+
+    public static void execute(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException {
+
+        final var budget = parseSize(args[0]);
+
+        final var lock = CacheLock.exclusive(repository);
+        try {
+            final var cacheRootPath = getCacheRootPath(repository);
+            final var objectsPath = getObjectsPath(repository);
+            final var referenced = getReferencedEntries(repository);
+
+            var removedObjects = removeUnreferencedObjects(objectsPath);
+
+            final var entries = new ArrayList<Entry>();
+            final var links = new HashMap<Object, Long>();
+            final var sizes = new HashMap<Object, Long>();
+
+            collectEntries(cacheRootPath, cacheRootPath, entries);
+            for (final var entry : entries) {
+                collectFiles(entry.path, entry.files, sizes);
+                for (final var key : entry.files) {
+                    links.merge(key, 1L, Long::sum);
+                }
+            }
+
+            var total = getSize(cacheRootPath);
+            out.println("Cache size " + total + " bytes, budget " + budget + " bytes");
+
+            entries.sort(Comparator.comparing(e -> e.lastUsed));
+
+            for (final var entry : entries) {
+                if (total <= budget) {
+                    break;
+                }
+                if (referenced.contains(entry.path)) {
+                    continue;
+                }
+                for (final var key : entry.files) {
+                    if (links.merge(key, -1L, Long::sum) == 0) {
+                        total -= sizes.get(key);
+                    }
+                }
+                deleteRecursively(entry.path);
+                Files.deleteIfExists(getUsedPath(entry.path));
+                Files.deleteIfExists(getManifestPath(entry.path));
+                out.println("Evicted " + entry.path + " last used " + entry.lastUsed);
+            }
+
+            removedObjects += removeUnreferencedObjects(objectsPath);
+
+            out.println("Removed " + removedObjects + " unreferenced objects");
+            out.println("Cache size " + getSize(cacheRootPath) + " bytes after collection");
+        } finally {
+            lock.close();
+        }
+    }
+
+    private static int removeUnreferencedObjects(@Nonnull Path objectsPath) throws IOException {
+
+        if (!Files.isDirectory(objectsPath)) {
+            return 0;
+        }
+
+        var removed = 0;
+        try (var prefixes = Files.list(objectsPath)) {
+            for (final var prefix : (Iterable<Path>) prefixes::iterator) {
+                try (var paths = Files.list(prefix)) {
+                    for (final var path : (Iterable<Path>) paths::iterator) {
+                        if ((Integer) Files.getAttribute(path, "unix:nlink", NOFOLLOW_LINKS) == 1) {
+                            Files.delete(path);
+                            removed++;
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static long getSize(@Nonnull Path cacheRootPath) throws IOException {
+
+        final var sizes = new HashMap<Object, Long>();
+        collectFiles(cacheRootPath, new HashSet<>(), sizes);
+        return sizes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Nonnull
+    private static Set<Path> getReferencedEntries(@Nonnull Repository repository) throws IOException {
+
+        final var referenced = new HashSet<Path>();
+        final var commandsPath = repository.launcherDir.resolve("commands");
+        if (!Files.isDirectory(commandsPath)) {
+            return referenced;
+        }
+
+        try (var profiles = Files.list(commandsPath)) {
+            for (final var profilePath : (Iterable<Path>) profiles::iterator) {
+                try (var commands = Files.list(profilePath)) {
+                    for (final var commandPath : (Iterable<Path>) commands::iterator) {
+                        if (!isAlive(commandPath.resolve("run").resolve("process.pid"))) {
+                            continue;
+                        }
+                        final var recordPath = commandPath.resolve("attachments");
+                        if (!Files.exists(recordPath)) {
+                            throw new IllegalStateException(
+                                    "Attachments record not found for running command: " + commandPath);
+                        }
+                        Stream.of(Files.readString(recordPath, UTF_8).split("\n", -1))
+                                .filter(e -> !e.isEmpty())
+                                .map(Path::of)
+                                .forEach(referenced::add);
+                    }
+                }
+            }
+        }
+        return referenced;
+    }
+
+    private static void collectEntries(@Nonnull Path cacheRootPath, @Nonnull Path dir, @Nonnull List<Entry> entries)
+            throws IOException {
+
+        try (var paths = Files.list(dir)) {
+            for (final var path : (Iterable<Path>) paths::iterator) {
+                final var name = path.getFileName().toString();
+                if (dir.equals(cacheRootPath) && name.startsWith(".")) {
+                    continue;
+                }
+                if (!Files.isDirectory(path, NOFOLLOW_LINKS)) {
+                    if (name.endsWith(".used") && !Files.exists(path.resolveSibling(
+                            name.substring(0, name.length() - ".used".length())), NOFOLLOW_LINKS)
+                        || name.endsWith(".manifest") && !Files.exists(path.resolveSibling(
+                            name.substring(0, name.length() - ".manifest".length())), NOFOLLOW_LINKS)) {
+                        Files.delete(path);
+                    }
+                } else if (name.endsWith(".tmp")) {
+                    deleteRecursively(path);
+                } else if (isArchive(name)) {
+                    final var usedPath = getUsedPath(path);
+                    final var lastUsed = Files.exists(usedPath)
+                            ? Files.getLastModifiedTime(usedPath)
+                            : Files.getLastModifiedTime(path);
+                    entries.add(new Entry(path, lastUsed));
+                } else {
+                    collectEntries(cacheRootPath, path, entries);
+                }
+            }
+        }
+    }
+
+    private static void collectFiles(@Nonnull Path root, @Nonnull Set<Object> keys, @Nonnull Map<Object, Long> sizes)
+            throws IOException {
+
+        if (!Files.isDirectory(root, NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        Files.walkFileTree(root, Collections.emptySet(), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                final var key = attrs.fileKey() == null ? file : attrs.fileKey();
+                keys.add(key);
+                sizes.put(key, attrs.size());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static class Entry {
+
+        @Nonnull
+        public final Path path;
+
+        @Nonnull
+        public final FileTime lastUsed;
+
+        @Nonnull
+        public final Set<Object> files = new HashSet<>();
+
+        public Entry(@Nonnull Path path, @Nonnull FileTime lastUsed) {
+            this.path = path;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import static codes.writeonce.launcher.ProcessSettings.parseCpuList;
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class HostFacts {
+
+    private static final Pattern FACT_NAME = Pattern.compile(
+            "(host\\.cpus|host\\.memory\\.mb|cgroup\\.cpus|cgroup\\.memory\\.max\\.mb)"
+            + "(\\.(percent|minus|div)\\.\\d+)?");
+
+    private static final Path CGROUP_MOUNT = Path.of("/sys/fs/cgroup");
+
+    @Nonnull
+    private final Map<String, Long> facts;
+
+    private HostFacts(@Nonnull Map<String, Long> facts) {
+        this.facts = facts;
+    }
+
+    @Nonnull
+    public static HostFacts read(@Nonnull Properties configProperties) throws IOException {
+
+        final var online = readString(Path.of("/sys/devices/system/cpu/online"));
+        final var hostCpus = online == null
+                ? Runtime.getRuntime().availableProcessors()
+                : parseCpuList(online).cardinality();
+
+        var hostMemory = Runtime.getRuntime().maxMemory();
+        final var meminfo = readString(Path.of("/proc/meminfo"));
+        if (meminfo != null) {
+            for (final var line : meminfo.split("\n")) {
+                if (line.startsWith("MemTotal:")) {
+                    hostMemory = Long.parseLong(line.substring("MemTotal:".length()).replace("kB", "").trim()) << 10;
+                    break;
+                }
+            }
+        }
+
+        final var processCpus = configProperties.getProperty("launcher.process.cpus");
+        final var allowedCpus = processCpus == null || processCpus.isBlank()
+                ? getAllowedCpus()
+                : parseCpuList(processCpus.trim()).cardinality();
+
+        var cgroupCpus = (long) Math.min(hostCpus, allowedCpus);
+        var cgroupMemory = hostMemory;
+
+        final var cpuMax = getCpuMax(configProperties.getProperty("launcher.cgroup.cpu.max"));
+        if (cpuMax > 0) {
+            cgroupCpus = Math.min(cgroupCpus, cpuMax);
+        }
+        final var memoryMax = configProperties.getProperty("launcher.cgroup.memory.max");
+        if (memoryMax != null && !memoryMax.isBlank() && !memoryMax.trim().equals("max")) {
+            cgroupMemory = Math.min(cgroupMemory, parseSize(memoryMax));
+        }
+
+        final var root = configProperties.getProperty("launcher.cgroup.root");
+        for (var path = root == null || root.isBlank() ? getOwnCgroup() : Path.of(root.trim()).toAbsolutePath();
+             path != null; path = path.getParent()) {
+            final var groupCpus = getCpuMax(readString(path.resolve("cpu.max")));
+            if (groupCpus > 0) {
+                cgroupCpus = Math.min(cgroupCpus, groupCpus);
+            }
+            final var groupMemory = readString(path.resolve("memory.max"));
+            if (groupMemory != null && !groupMemory.equals("max")) {
+                cgroupMemory = Math.min(cgroupMemory, Long.parseLong(groupMemory));
+            }
+        }
+
+        final var facts = new LinkedHashMap<String, Long>();
+        facts.put("host.cpus", (long) hostCpus);
+        facts.put("host.memory.mb", hostMemory >> 20);
+        facts.put("cgroup.cpus", cgroupCpus);
+        facts.put("cgroup.memory.max.mb", cgroupMemory >> 20);
+        return new HostFacts(facts);
+    }
+
+    public static boolean isFact(@Nonnull String name) {
+        return FACT_NAME.matcher(name).matches();
+    }
+
+    @Nonnull
+    public Map<String, String> getValues() {
+        final var result = new LinkedHashMap<String, String>();
+        facts.forEach((name, value) -> result.put(name, String.valueOf(value)));
+        return result;
+    }
+
+    @Nonnull
+    public String getValue(@Nonnull String name) {
+
+        for (final var entry : facts.entrySet()) {
+            final var fact = entry.getKey();
+            if (name.equals(fact)) {
+                return String.valueOf(entry.getValue());
+            }
+            if (name.startsWith(fact + ".")) {
+                final var operation = name.substring(fact.length() + 1);
+                final var dot = operation.indexOf('.');
+                if (dot < 0) {
+                    break;
+                }
+                final long operand;
+                try {
+                    operand = Long.parseLong(operation.substring(dot + 1));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                final var value = entry.getValue();
+                final var result = switch (operation.substring(0, dot)) {
+                    case "percent" -> value * operand / 100;
+                    case "minus" -> value - operand;
+                    case "div" -> operand == 0 ? 0 : value / operand;
+                    default -> throw new IllegalArgumentException("Parameter \"" + name + "\" not defined");
+                };
+                return String.valueOf(Math.max(1, result));
+            }
+        }
+        throw new IllegalArgumentException("Parameter \"" + name + "\" not defined");
+    }
+
+    private static int getAllowedCpus() throws IOException {
+
+        final var status = readString(Path.of("/proc/self/status"));
+        if (status != null) {
+            for (final var line : status.split("\n")) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    return parseCpuList(line.substring("Cpus_allowed_list:".length()).trim()).cardinality();
+                }
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Nullable
+    private static Path getOwnCgroup() throws IOException {
+
+        final var cgroups = readString(Path.of("/proc/self/cgroup"));
+        if (cgroups != null) {
+            for (final var line : cgroups.split("\n")) {
+                if (line.startsWith("0::/")) {
+                    return CGROUP_MOUNT.resolve(line.substring("0::/".length()));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long getCpuMax(@Nullable String value) {
+
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        final var fields = value.trim().split("\\s+");
+        if (fields[0].equals("max")) {
+            return -1;
+        }
+        final var quota = Long.parseLong(fields[0]);
+        final var period = fields.length > 1 ? Long.parseLong(fields[1]) : 100_000;
+        return Math.max(1, (quota + period - 1) / period);
+    }
+
+    @Nullable
+    private static String readString(@Nonnull Path path) throws IOException {
+        try {
+            return Files.readString(path, UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
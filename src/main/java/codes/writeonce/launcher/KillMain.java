@@ -2,7 +2,9 @@ package codes.writeonce.launcher;
 
 import codes.writeonce.repository.Repository;
 
+import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.util.concurrent.ExecutionException;
 
@@ -12,32 +14,36 @@ import static codes.writeonce.launcher.Utils.getPidPath;
 public class KillMain {
 
     public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        try (var repository = new Repository()) {
+            execute(repository, args, System.out);
+        }
+    }
+
+    public static void execute(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
 
         final var profile = args[0];
         final var command = args[1];
 
-        try (var repository = new Repository()) {
-
-            final var pidPath = getPidPath(repository, profile, command);
-            final var pid = getPid(pidPath);
-            if (pid == null) {
-                System.out.println("Process PID file not found");
+        final var pidPath = getPidPath(repository, profile, command);
+        final var pid = getPid(pidPath);
+        if (pid == null) {
+            out.println("Process PID file not found");
+        } else {
+            final var processHandle = ProcessHandle.of(pid).orElse(null);
+            if (processHandle == null) {
+                out.println("Process not found for PID=" + pid);
+                Files.deleteIfExists(pidPath);
+            } else if (!processHandle.isAlive()) {
+                out.println("Process is not alive for PID=" + pid);
+                Files.deleteIfExists(pidPath);
+            } else if (processHandle.destroyForcibly()) {
+                out.println("Process forced termination initiated for PID=" + pid);
+                processHandle.onExit().get();
+                out.println("Process terminated forcibly for PID=" + pid);
+                Files.deleteIfExists(pidPath);
             } else {
-                final var processHandle = ProcessHandle.of(pid).orElse(null);
-                if (processHandle == null) {
-                    System.out.println("Process not found for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else if (!processHandle.isAlive()) {
-                    System.out.println("Process is not alive for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else if (processHandle.destroyForcibly()) {
-                    System.out.println("Process forced termination initiated for PID=" + pid);
-                    processHandle.onExit().get();
-                    System.out.println("Process terminated forcibly for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else {
-                    System.out.println("Cannot terminate process for PID=" + pid);
-                }
+                out.println("Cannot terminate process for PID=" + pid);
             }
         }
     }
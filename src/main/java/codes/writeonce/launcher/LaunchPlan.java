@@ -0,0 +1,297 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+public class LaunchPlan {
+
+    private static final int MAGIC = 0x4C504C4E;
+
+    private static final int VERSION = 3;
+
+    @Nonnull
+    public final byte[] key;
+
+    @Nonnull
+    public final String timeToken;
+
+    @Nonnull
+    public final Properties configProperties;
+
+    @Nonnull
+    public final String commandArguments;
+
+    @Nonnull
+    public final Properties environmentProperties;
+
+    @Nonnull
+    public final String javaCmd;
+
+    @Nonnull
+    public final List<String> dependencies;
+
+    @Nonnull
+    public final List<String> attachments;
+
+    @Nonnull
+    public final Properties attachmentDigests;
+
+    @Nonnull
+    public final List<String> environmentNames;
+
+    @Nonnull
+    public final List<String> systemPropertyNames;
+
+    @Nonnull
+    public final byte[] inputsKey;
+
+    public LaunchPlan(
+            @Nonnull byte[] key,
+            @Nonnull String timeToken,
+            @Nonnull Properties configProperties,
+            @Nonnull String commandArguments,
+            @Nonnull Properties environmentProperties,
+            @Nonnull String javaCmd,
+            @Nonnull List<String> dependencies,
+            @Nonnull List<String> attachments,
+            @Nonnull Properties attachmentDigests,
+            @Nonnull List<String> environmentNames,
+            @Nonnull List<String> systemPropertyNames,
+            @Nonnull byte[] inputsKey
+    ) {
+        this.key = requireNonNull(key);
+        this.timeToken = requireNonNull(timeToken);
+        this.configProperties = requireNonNull(configProperties);
+        this.commandArguments = requireNonNull(commandArguments);
+        this.environmentProperties = requireNonNull(environmentProperties);
+        this.javaCmd = requireNonNull(javaCmd);
+        this.dependencies = requireNonNull(dependencies);
+        this.attachments = requireNonNull(attachments);
+        this.attachmentDigests = requireNonNull(attachmentDigests);
+        this.environmentNames = requireNonNull(environmentNames);
+        this.systemPropertyNames = requireNonNull(systemPropertyNames);
+        this.inputsKey = requireNonNull(inputsKey);
+    }
+
+    public boolean isCurrent(@Nonnull Map<String, String> environment) {
+        return Arrays.equals(inputsKey, PlanInputs.getKey(environmentNames, systemPropertyNames, environment));
+    }
+
+    @Nonnull
+    public LaunchPlan withTime(@Nonnull String timeFileName) {
+        return new LaunchPlan(
+                key,
+                timeFileName,
+                replace(configProperties, timeFileName),
+                commandArguments.replace(timeToken, timeFileName),
+                replace(environmentProperties, timeFileName),
+                javaCmd.replace(timeToken, timeFileName),
+                dependencies.stream().map(e -> e.replace(timeToken, timeFileName)).toList(),
+                attachments.stream().map(e -> e.replace(timeToken, timeFileName)).toList(),
+                attachmentDigests,
+                environmentNames,
+                systemPropertyNames,
+                inputsKey
+        );
+    }
+
+    @Nonnull
+    private Properties replace(@Nonnull Properties properties, @Nonnull String timeFileName) {
+        final var result = new Properties();
+        for (final var name : properties.stringPropertyNames()) {
+            result.setProperty(name, properties.getProperty(name).replace(timeToken, timeFileName));
+        }
+        return result;
+    }
+
+    public void write(@Nonnull Path path) throws IOException {
+
+        final var tmpPath = Files.createTempFile(path.getParent(), path.getFileName() + ".", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBytes(out, key);
+            writeString(out, timeToken);
+            writeProperties(out, configProperties);
+            writeString(out, commandArguments);
+            writeProperties(out, environmentProperties);
+            writeString(out, javaCmd);
+            writeList(out, dependencies);
+            writeList(out, attachments);
+            writeProperties(out, attachmentDigests);
+            writeList(out, environmentNames);
+            writeList(out, systemPropertyNames);
+            writeBytes(out, inputsKey);
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+        Files.move(tmpPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    @Nullable
+    public static LaunchPlan read(@Nonnull Path path, @Nonnull byte[] key, @Nonnull Map<String, String> environment)
+            throws IOException {
+
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException ignore) {
+            return null;
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !Arrays.equals(readBytes(in), key)) {
+                return null;
+            }
+            final var plan = new LaunchPlan(
+                    key,
+                    readString(in),
+                    readProperties(in),
+                    readString(in),
+                    readProperties(in),
+                    readString(in),
+                    readList(in),
+                    readList(in),
+                    readProperties(in),
+                    readList(in),
+                    readList(in),
+                    readBytes(in)
+            );
+            return in.available() == 0 && plan.isCurrent(environment) ? plan : null;
+        } catch (IOException | RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Nonnull
+    public static MessageDigest newKeyDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void updateKey(@Nonnull MessageDigest digest, @Nullable byte[] bytes) {
+        if (bytes == null) {
+            digest.update(new byte[]{-1, -1, -1, -1});
+        } else {
+            digest.update(new byte[]{
+                    (byte) (bytes.length >>> 24),
+                    (byte) (bytes.length >>> 16),
+                    (byte) (bytes.length >>> 8),
+                    (byte) bytes.length
+            });
+            digest.update(bytes);
+        }
+    }
+
+    public static void updateKey(@Nonnull MessageDigest digest, @Nonnull String value) {
+        updateKey(digest, value.getBytes(UTF_8));
+    }
+
+    public static void updateKey(@Nonnull MessageDigest digest, @Nonnull Map<String, String> values) {
+        final var sorted = new TreeMap<>(values);
+        updateKey(digest, String.valueOf(sorted.size()));
+        for (final var entry : sorted.entrySet()) {
+            updateKey(digest, entry.getKey());
+            updateKey(digest, entry.getValue());
+        }
+    }
+
+    private static void writeBytes(@Nonnull DataOutputStream out, @Nonnull byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeString(@Nonnull DataOutputStream out, @Nonnull String value) throws IOException {
+        writeBytes(out, value.getBytes(UTF_8));
+    }
+
+    private static void writeList(@Nonnull DataOutputStream out, @Nonnull List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final var value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeProperties(@Nonnull DataOutputStream out, @Nonnull Properties properties)
+            throws IOException {
+        final var names = properties.stringPropertyNames();
+        out.writeInt(names.size());
+        for (final var name : names) {
+            writeString(out, name);
+            writeString(out, properties.getProperty(name));
+        }
+    }
+
+    @Nonnull
+    private static byte[] readBytes(@Nonnull DataInputStream in) throws IOException {
+        final var length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("Invalid launch plan");
+        }
+        final var bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull DataInputStream in) throws IOException {
+        return new String(readBytes(in), UTF_8);
+    }
+
+    @Nonnull
+    private static List<String> readList(@Nonnull DataInputStream in) throws IOException {
+        final var size = readSize(in);
+        final var values = new ArrayList<String>(size);
+        for (var i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static int readSize(@Nonnull DataInputStream in) throws IOException {
+        final var size = in.readInt();
+        if (size < 0 || size > in.available() / 4) {
+            throw new IllegalArgumentException("Invalid launch plan");
+        }
+        return size;
+    }
+
+    @Nonnull
+    private static Properties readProperties(@Nonnull DataInputStream in) throws IOException {
+        final var size = readSize(in);
+        final var properties = new Properties();
+        for (var i = 0; i < size; i++) {
+            properties.setProperty(readString(in), readString(in));
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,194 @@
+package codes.writeonce.launcher;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static codes.writeonce.launcher.StatusMain.appendJsonString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class LaunchTrace {
+
+    private static final long MAX_HISTORY_SIZE = 0x100000;
+
+    @Nonnull
+    private final String command;
+
+    @Nonnull
+    private final Instant startedAt = Instant.now();
+
+    private final long started = System.nanoTime();
+
+    @Nonnull
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    @Nonnull
+    private final List<Extraction> extractions = new ArrayList<>();
+
+    public LaunchTrace(@Nonnull String command) {
+        this.command = command;
+    }
+
+    @Nonnull
+    public Span begin(@Nonnull String phase) {
+        return new Span(phase);
+    }
+
+    public synchronized void addExtraction(@Nonnull Extraction extraction) {
+        extractions.add(extraction);
+    }
+
+    public void write(@Nonnull Path historyPath, @Nonnull String mode, boolean warm) throws IOException {
+
+        final var builder = new StringBuilder();
+        builder.append("{\"time\":");
+        appendJsonString(builder, startedAt.toString());
+        builder.append(",\"command\":");
+        appendJsonString(builder, command);
+        builder.append(",\"mode\":");
+        appendJsonString(builder, mode);
+        builder.append(",\"warm\":").append(warm);
+        builder.append(",\"totalMicros\":").append((System.nanoTime() - started) / 1_000);
+        builder.append(",\"phases\":{");
+        synchronized (this) {
+            var first = true;
+            for (final var phase : phases.values()) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                appendJsonString(builder, phase.name);
+                builder.append(":{\"count\":").append(phase.count);
+                builder.append(",\"micros\":").append(phase.nanos / 1_000).append('}');
+            }
+            builder.append("},\"extractions\":[");
+            first = true;
+            for (final var extraction : extractions) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                builder.append("{\"path\":");
+                appendJsonString(builder, extraction.path.toString());
+                builder.append(",\"micros\":").append(extraction.nanos / 1_000);
+                builder.append(",\"files\":").append(extraction.files);
+                builder.append(",\"bytes\":").append(extraction.bytes).append('}');
+            }
+        }
+        builder.append("]}\n");
+
+        if (Files.exists(historyPath) && Files.size(historyPath) > MAX_HISTORY_SIZE) {
+            Files.move(historyPath, historyPath.resolveSibling(historyPath.getFileName() + ".1"), REPLACE_EXISTING);
+        }
+        Files.writeString(historyPath, builder, UTF_8, CREATE, WRITE, APPEND);
+    }
+
+    public synchronized void add(@Nonnull String name, long nanos) {
+        final var phase = phases.computeIfAbsent(name, Phase::new);
+        phase.count++;
+        phase.nanos += nanos;
+    }
+
+    public class Span {
+
+        @Nonnull
+        private final String phase;
+
+        @Nonnull
+        private final LaunchPhaseEvent event = new LaunchPhaseEvent();
+
+        private final long started = System.nanoTime();
+
+        private Span(@Nonnull String phase) {
+            this.phase = phase;
+            event.begin();
+        }
+
+        public void end() {
+            add(phase, System.nanoTime() - started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command;
+                event.phase = phase;
+                event.commit();
+            }
+        }
+    }
+
+    public static class Extraction {
+
+        @Nonnull
+        public final Path path;
+
+        public final long nanos;
+
+        public final long files;
+
+        public final long bytes;
+
+        public Extraction(@Nonnull Path path, long nanos, long files, long bytes) {
+            this.path = path;
+            this.nanos = nanos;
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Phase {
+
+        @Nonnull
+        private final String name;
+
+        private long count;
+
+        private long nanos;
+
+        private Phase(@Nonnull String name) {
+            this.name = name;
+        }
+    }
+
+    @Name("codes.writeonce.launcher.LaunchPhase")
+    @Label("Launch Phase")
+    @Category("Launcher")
+    static class LaunchPhaseEvent extends Event {
+
+        @Label("Command")
+        String command;
+
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("codes.writeonce.launcher.AttachmentExtraction")
+    @Label("Attachment Extraction")
+    @Category("Launcher")
+    static class AttachmentExtractionEvent extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Files")
+        long files;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,287 @@
+package codes.writeonce.launcher;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static codes.writeonce.launcher.Utils.getTmpPath;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class LogPumpMain {
+
+    private static final int BUFFER_SIZE = 0x10000;
+
+    private static final int XZ_PRESET = 2;
+
+    private static final long ROTATION_RETRY_MILLIS = 10_000;
+
+    @Nonnull
+    private final Path logPath;
+
+    @Nonnull
+    private final String name;
+
+    private final long maxSize;
+
+    private final long maxAgeMillis;
+
+    @Nonnull
+    private final String compression;
+
+    private final int retainCount;
+
+    private final long retainBytes;
+
+    @Nonnull
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(r, "log-compressor");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private FileChannel channel;
+
+    private long size;
+
+    private long openedMillis;
+
+    private long rotationRetryMillis;
+
+    private int sequence;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new LogPumpMain(
+                Path.of(args[0]),
+                args[1],
+                Long.parseLong(args[2]),
+                Long.parseLong(args[3]),
+                args[4],
+                Integer.parseInt(args[5]),
+                Long.parseLong(args[6])
+        ).pump(System.in);
+    }
+
+    public LogPumpMain(
+            @Nonnull Path logPath,
+            @Nonnull String name,
+            long maxSize,
+            long maxAgeMillis,
+            @Nonnull String compression,
+            int retainCount,
+            long retainBytes
+    ) {
+        switch (compression) {
+            case "xz", "gzip", "none" -> {
+                // supported
+            }
+            default -> throw new IllegalArgumentException("Unsupported log compression: " + compression);
+        }
+        this.logPath = logPath;
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.compression = compression;
+        this.retainCount = retainCount;
+        this.retainBytes = retainBytes;
+    }
+
+    public void pump(@Nonnull InputStream in) throws IOException, InterruptedException {
+
+        compressor.execute(this::enforceRetention);
+        open();
+
+        final var bytes = new byte[BUFFER_SIZE];
+        final var buffer = ByteBuffer.wrap(bytes);
+        var failed = false;
+        try {
+            while (true) {
+                final var read = in.read(bytes);
+                if (read == -1) {
+                    break;
+                }
+                try {
+                    if (isRotationDue(read)) {
+                        try {
+                            rotate();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    if (!channel.isOpen()) {
+                        open();
+                    }
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        size += channel.write(buffer);
+                    }
+                    failed = false;
+                } catch (IOException e) {
+                    if (!failed) {
+                        e.printStackTrace();
+                        failed = true;
+                    }
+                }
+            }
+        } finally {
+            channel.close();
+            compressor.shutdown();
+            compressor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isRotationDue(int read) {
+        final var now = System.currentTimeMillis();
+        return size > 0 && now >= rotationRetryMillis && (maxSize > 0 && size + read > maxSize
+                                                          || maxAgeMillis > 0 && now - openedMillis >= maxAgeMillis);
+    }
+
+    private void open() throws IOException {
+        reopen();
+        openedMillis = System.currentTimeMillis();
+    }
+
+    private void reopen() throws IOException {
+        channel = FileChannel.open(getCurrentPath(), CREATE, WRITE, APPEND);
+        size = channel.size();
+    }
+
+    private void rotate() throws IOException {
+
+        channel.close();
+
+        Path segmentPath;
+        try {
+            do {
+                sequence++;
+                segmentPath = logPath.resolve(name + "." + sequence + ".log");
+            } while (Files.exists(segmentPath));
+
+            Files.move(getCurrentPath(), segmentPath, ATOMIC_MOVE);
+        } catch (IOException e) {
+            rotationRetryMillis = System.currentTimeMillis() + ROTATION_RETRY_MILLIS;
+            try {
+                reopen();
+            } catch (IOException e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+        open();
+
+        final var path = segmentPath;
+        compressor.execute(() -> {
+            compress(path);
+            enforceRetention();
+        });
+    }
+
+    @Nonnull
+    private Path getCurrentPath() {
+        return logPath.resolve(name + ".log");
+    }
+
+    private void compress(@Nonnull Path path) {
+
+        if (compression.equals("none")) {
+            return;
+        }
+
+        final var targetPath = path.resolveSibling(path.getFileName() + (compression.equals("xz") ? ".xz" : ".gz"));
+        final var tmpPath = getTmpPath(targetPath);
+        try {
+            try (var in = Files.newInputStream(path);
+                 var out = newCompressor(Files.newOutputStream(tmpPath))) {
+                in.transferTo(out);
+            }
+            Files.setLastModifiedTime(tmpPath, Files.getLastModifiedTime(path));
+            Files.move(tmpPath, targetPath, ATOMIC_MOVE);
+            Files.delete(path);
+        } catch (NoSuchFileException ignore) {
+            // removed by retention
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Nonnull
+    private OutputStream newCompressor(@Nonnull OutputStream out) throws IOException {
+        return compression.equals("xz")
+                ? new XZCompressorOutputStream(out, XZ_PRESET)
+                : new GzipCompressorOutputStream(out);
+    }
+
+    private void enforceRetention() {
+
+        if (retainCount <= 0 && retainBytes <= 0) {
+            return;
+        }
+
+        try {
+            final var currentPath = getCurrentPath();
+            final var segments = new ArrayList<Segment>();
+            try (var paths = Files.list(logPath)) {
+                for (final var path : (Iterable<Path>) paths::iterator) {
+                    final var fileName = path.getFileName().toString();
+                    if (!path.equals(currentPath) && fileName.startsWith("output.")
+                        && (fileName.endsWith(".log") || fileName.endsWith(".log.xz") || fileName.endsWith(".log.gz"))
+                        && Files.isRegularFile(path)) {
+                        segments.add(new Segment(path, Files.getLastModifiedTime(path).toMillis(), Files.size(path)));
+                    }
+                }
+            }
+
+            segments.sort(Comparator.comparingLong((Segment e) -> e.modified).reversed());
+
+            var count = 0;
+            var bytes = 0L;
+            for (final var segment : segments) {
+                count++;
+                bytes += segment.size;
+                if (retainCount > 0 && count > retainCount || retainBytes > 0 && bytes > retainBytes) {
+                    Files.deleteIfExists(segment.path);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Segment {
+
+        @Nonnull
+        private final Path path;
+
+        private final long modified;
+
+        private final long size;
+
+        private Segment(@Nonnull Path path, long modified, long size) {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class MappedZipExtractor extends AbstractExtractor {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final int NTFS_EXTRA_ID = 0x000a;
+
+    private static final int EXTENDED_TIMESTAMP_EXTRA_ID = 0x5455;
+
+    private static final long WINDOWS_EPOCH_OFFSET = 11644473600000L;
+
+    private static final int EOCD_SIZE = 22;
+
+    private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final int PLATFORM_UNIX = 3;
+
+    private static final int FILE_TYPE_FLAG = 0xF000;
+
+    private static final int LINK_FLAG = 0xA000;
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    private final int parallelism;
+
+    public MappedZipExtractor() {
+        this(1);
+    }
+
+    public MappedZipExtractor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid zip extraction parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void extract(
+            @Nonnull ArchiveSource source,
+            @Nonnull Path destinationPath,
+            @Nonnull ExtractionListener listener
+    ) throws ExecutionException, InterruptedException, IOException {
+
+        final var rootPath = destinationPath.toRealPath();
+
+        final var posix = Files.getFileStore(rootPath).supportsFileAttributeView(PosixFileAttributeView.class);
+
+        final var createdDirs = new HashSet<Path>();
+        createdDirs.add(rootPath);
+
+        final var dirs = new TreeMap<Path, DirInfo>();
+        final var symlinks = new TreeMap<Path, SymlinkInfo>();
+        final var files = new ArrayList<FileInfo>();
+
+        try (var channel = FileChannel.open(source.getFile(), READ)) {
+
+            final var archive = new MappedArchive(channel);
+            final var entries = archive.readCentralDirectory();
+
+            for (final var entry : entries) {
+                if (entry.isEncrypted() || entry.method != STORED && entry.method != DEFLATED) {
+                    new ZipExtractor(parallelism).extract(source, destinationPath, listener);
+                    return;
+                }
+            }
+
+            for (final var entry : entries) {
+
+                final var entryPath = rootPath.resolve(entry.name).normalize();
+                final var parent = entryPath.getParent();
+                if (!parent.startsWith(rootPath)) {
+                    throw new IllegalArgumentException();
+                }
+
+                final var lastModified = entry.time == null ? FileTime.fromMillis(dosToJavaTime(entry.dosTime))
+                        : entry.time;
+                final var permissions = fromMode(entry.getUnixMode());
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                    dirs.put(entryPath, new DirInfo(lastModified, permissions));
+                    createdDirs.add(parent);
+                } else if (entry.isUnixSymlink()) {
+                    final var target = new String(archive.readFully(entry), UTF_8);
+                    symlinks.put(entryPath, new SymlinkInfo(Path.of(target), lastModified, permissions));
+                } else if (listener.isSelected(entryPath)) {
+                    if (createdDirs.add(parent)) {
+                        Files.createDirectories(parent);
+                    }
+                    files.add(new FileInfo(entry, entryPath, lastModified));
+                }
+            }
+
+            writeChunked(files, file -> file.entry.compressedSize, parallelism, chunk -> {
+                final var inflater = new Inflater(true);
+                final var buffer = BufferPool.SHARED.acquireDirect();
+                try {
+                    for (final var file : chunk) {
+                        writeFile(archive, file, inflater, buffer, posix, listener);
+                    }
+                } finally {
+                    BufferPool.SHARED.release(buffer);
+                    inflater.end();
+                }
+            });
+        }
+
+        applyDeferred(dirs, symlinks, createdDirs, posix, listener);
+    }
+
+    private static void writeFile(
+            @Nonnull MappedArchive archive,
+            @Nonnull FileInfo file,
+            @Nonnull Inflater inflater,
+            @Nonnull ByteBuffer buffer,
+            boolean posix,
+            @Nonnull ExtractionListener listener
+    ) throws IOException {
+
+        final var entry = file.entry;
+        final var dataOffset = archive.getDataOffset(entry);
+        final var digest = newDigest(listener);
+
+        try (var out = FileChannel.open(file.path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            if (entry.method == STORED) {
+                archive.transferTo(dataOffset, entry.size, out, digest);
+            } else {
+                final var written = archive.inflate(dataOffset, entry.compressedSize, inflater, buffer, out, digest);
+                if (written != entry.size) {
+                    throw new IllegalArgumentException("Size mismatch for zip entry: " + entry.name);
+                }
+            }
+        }
+        completeFile(listener, file.path, entry.size, fromMode(entry.getUnixMode()), file.time, digest, posix);
+    }
+
+    private static long dosToJavaTime(long dosTime) {
+        final var calendar = Calendar.getInstance();
+        calendar.set(Calendar.YEAR, (int) ((dosTime >> 25) & 0x7f) + 1980);
+        calendar.set(Calendar.MONTH, (int) ((dosTime >> 21) & 0x0f) - 1);
+        calendar.set(Calendar.DATE, (int) (dosTime >> 16) & 0x1f);
+        calendar.set(Calendar.HOUR_OF_DAY, (int) (dosTime >> 11) & 0x1f);
+        calendar.set(Calendar.MINUTE, (int) (dosTime >> 5) & 0x3f);
+        calendar.set(Calendar.SECOND, (int) (dosTime << 1) & 0x3e);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static class CentralEntry {
+
+        @Nonnull
+        public final String name;
+
+        public final int versionMadeBy;
+
+        public final int flags;
+
+        public final int method;
+
+        public final long dosTime;
+
+        public final long compressedSize;
+
+        public final long size;
+
+        public final long externalAttributes;
+
+        public final long localHeaderOffset;
+
+        @Nullable
+        public final FileTime time;
+
+        public CentralEntry(
+                @Nonnull String name,
+                int versionMadeBy,
+                int flags,
+                int method,
+                long dosTime,
+                long compressedSize,
+                long size,
+                long externalAttributes,
+                long localHeaderOffset,
+                @Nullable FileTime time
+        ) {
+            this.name = name;
+            this.versionMadeBy = versionMadeBy;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.externalAttributes = externalAttributes;
+            this.localHeaderOffset = localHeaderOffset;
+            this.time = time;
+        }
+
+        public boolean isEncrypted() {
+            return (flags & 1) != 0;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public boolean isUnixSymlink() {
+            return (getUnixMode() & FILE_TYPE_FLAG) == LINK_FLAG;
+        }
+
+        public int getUnixMode() {
+            return versionMadeBy >> 8 == PLATFORM_UNIX ? (int) ((externalAttributes >> 16) & 0xFFFF) : 0;
+        }
+    }
+
+    private static class FileInfo {
+
+        @Nonnull
+        public final CentralEntry entry;
+
+        @Nonnull
+        public final Path path;
+
+        @Nonnull
+        public final FileTime time;
+
+        public FileInfo(@Nonnull CentralEntry entry, @Nonnull Path path, @Nonnull FileTime time) {
+            this.entry = entry;
+            this.path = path;
+            this.time = time;
+        }
+    }
+
+    private static class MappedArchive {
+
+        @Nonnull
+        private final FileChannel channel;
+
+        private final long size;
+
+        @Nonnull
+        private final MappedByteBuffer[] segments;
+
+        public MappedArchive(@Nonnull FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        }
+
+        @Nonnull
+        public List<CentralEntry> readCentralDirectory() throws IOException {
+
+            final var tailSize = (int) Math.min(size, EOCD_SIZE + 0xFFFF + ZIP64_EOCD_LOCATOR_SIZE);
+            final var tailOffset = size - tailSize;
+            final var tail = region(tailOffset, tailSize);
+
+            var eocd = -1;
+            for (var i = tailSize - EOCD_SIZE; i >= 0; i--) {
+                if (tail.getInt(i) == EOCD_SIGNATURE) {
+                    eocd = i;
+                    break;
+                }
+            }
+            if (eocd < 0) {
+                throw new IllegalArgumentException("Zip end of central directory not found");
+            }
+
+            long entryCount = Short.toUnsignedInt(tail.getShort(eocd + 10));
+            long cdSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+            long cdOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+
+            final var locator = eocd - ZIP64_EOCD_LOCATOR_SIZE;
+            if (locator >= 0 && tail.getInt(locator) == ZIP64_EOCD_LOCATOR_SIGNATURE) {
+                final var zip64 = region(tail.getLong(locator + 8), 56);
+                if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                    throw new IllegalArgumentException("Invalid zip64 end of central directory");
+                }
+                entryCount = zip64.getLong(32);
+                cdSize = zip64.getLong(40);
+                cdOffset = zip64.getLong(48);
+            }
+
+            if (cdSize > Integer.MAX_VALUE || cdOffset + cdSize > size) {
+                throw new IllegalArgumentException("Invalid zip central directory");
+            }
+
+            final var cd = channel.map(READ_ONLY, cdOffset, cdSize).order(ByteOrder.LITTLE_ENDIAN);
+            final var entries = new ArrayList<CentralEntry>((int) Math.min(entryCount, 0x10000));
+            var position = 0;
+            for (long i = 0; i < entryCount; i++) {
+                if (cd.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                    throw new IllegalArgumentException("Invalid zip central directory header");
+                }
+                final var versionMadeBy = Short.toUnsignedInt(cd.getShort(position + 4));
+                final var flags = Short.toUnsignedInt(cd.getShort(position + 8));
+                final var method = Short.toUnsignedInt(cd.getShort(position + 10));
+                final var dosTime = Integer.toUnsignedLong(cd.getShort(position + 14) & 0xFFFF) << 16
+                                    | Short.toUnsignedInt(cd.getShort(position + 12));
+                var compressedSize = Integer.toUnsignedLong(cd.getInt(position + 20));
+                var uncompressedSize = Integer.toUnsignedLong(cd.getInt(position + 24));
+                final var nameLength = Short.toUnsignedInt(cd.getShort(position + 28));
+                final var extraLength = Short.toUnsignedInt(cd.getShort(position + 30));
+                final var commentLength = Short.toUnsignedInt(cd.getShort(position + 32));
+                final var externalAttributes = Integer.toUnsignedLong(cd.getInt(position + 38));
+                var localHeaderOffset = Integer.toUnsignedLong(cd.getInt(position + 42));
+
+                final var nameBytes = new byte[nameLength];
+                cd.get(position + CENTRAL_HEADER_SIZE, nameBytes);
+                final var name = new String(nameBytes, UTF_8);
+
+                FileTime time = null;
+                var extra = position + CENTRAL_HEADER_SIZE + nameLength;
+                final var extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    final var id = Short.toUnsignedInt(cd.getShort(extra));
+                    final var length = Short.toUnsignedInt(cd.getShort(extra + 2));
+                    if (id == ZIP64_EXTRA_ID) {
+                        var field = extra + 4;
+                        if (uncompressedSize == 0xFFFFFFFFL) {
+                            uncompressedSize = cd.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = cd.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == 0xFFFFFFFFL) {
+                            localHeaderOffset = cd.getLong(field);
+                        }
+                    } else if (id == EXTENDED_TIMESTAMP_EXTRA_ID) {
+                        if (length >= 5 && (cd.get(extra + 4) & 1) != 0) {
+                            time = FileTime.from(cd.getInt(extra + 5), TimeUnit.SECONDS);
+                        }
+                    } else if (id == NTFS_EXTRA_ID) {
+                        if (length >= 32 && cd.getShort(extra + 8) == 1 && cd.getShort(extra + 10) == 24) {
+                            time = FileTime.from(cd.getLong(extra + 12) / 10 - WINDOWS_EPOCH_OFFSET * 1000,
+                                    TimeUnit.MICROSECONDS);
+                        }
+                    }
+                    extra += 4 + length;
+                }
+
+                entries.add(new CentralEntry(name, versionMadeBy, flags, method, dosTime, compressedSize,
+                        uncompressedSize, externalAttributes, localHeaderOffset, time));
+                position = extraEnd + commentLength;
+            }
+            return entries;
+        }
+
+        public long getDataOffset(@Nonnull CentralEntry entry) throws IOException {
+
+            final var header = region(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new IllegalArgumentException("Invalid zip local header: " + entry.name);
+            }
+            final var dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE
+                                   + Short.toUnsignedInt(header.getShort(26))
+                                   + Short.toUnsignedInt(header.getShort(28));
+            if (dataOffset + entry.compressedSize > size) {
+                throw new IllegalArgumentException("Truncated zip entry: " + entry.name);
+            }
+            return dataOffset;
+        }
+
+        public void transferTo(long offset, long length, @Nonnull FileChannel out, @Nullable MessageDigest digest)
+                throws IOException {
+            var position = offset;
+            final var end = offset + length;
+            if (digest != null) {
+                while (position < end) {
+                    final var window = (int) Math.min(WINDOW_SIZE, end - position);
+                    digest.update(region(position, window));
+                    position += window;
+                }
+                position = offset;
+            }
+            while (position < end) {
+                final var transferred = channel.transferTo(position, end - position, out);
+                if (transferred <= 0) {
+                    out.write(region(position, (int) Math.min(WINDOW_SIZE, end - position)));
+                    position += Math.min(WINDOW_SIZE, end - position);
+                } else {
+                    position += transferred;
+                }
+            }
+        }
+
+        public long inflate(
+                long offset,
+                long length,
+                @Nonnull Inflater inflater,
+                @Nonnull ByteBuffer buffer,
+                @Nonnull FileChannel out,
+                @Nullable MessageDigest digest
+        ) throws IOException {
+
+            inflater.reset();
+            var position = offset;
+            final var end = offset + length;
+            var written = 0L;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (position >= end) {
+                            throw new IllegalArgumentException("Truncated deflate stream");
+                        }
+                        final var window = (int) Math.min(WINDOW_SIZE, end - position);
+                        inflater.setInput(region(position, window));
+                        position += window;
+                    }
+                    buffer.clear();
+                    inflater.inflate(buffer);
+                    if (inflater.needsDictionary()) {
+                        throw new IllegalArgumentException("Deflate dictionary not supported");
+                    }
+                    buffer.flip();
+                    if (digest != null) {
+                        digest.update(buffer.duplicate());
+                    }
+                    while (buffer.hasRemaining()) {
+                        written += out.write(buffer);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+            return written;
+        }
+
+        @Nonnull
+        public byte[] readFully(@Nonnull CentralEntry entry) throws IOException {
+
+            if (entry.size > 0xFFFF) {
+                throw new IllegalArgumentException("Zip entry too large: " + entry.name);
+            }
+            final var dataOffset = getDataOffset(entry);
+            final var bytes = new byte[(int) entry.size];
+            if (entry.method == STORED) {
+                region(dataOffset, bytes.length).get(bytes);
+            } else {
+                final var inflater = new Inflater(true);
+                try {
+                    inflater.setInput(region(dataOffset, (int) entry.compressedSize));
+                    var read = 0;
+                    while (read < bytes.length && !inflater.finished()) {
+                        final var n = inflater.inflate(bytes, read, bytes.length - read);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IllegalArgumentException("Truncated deflate stream: " + entry.name);
+                        }
+                        read += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException(e);
+                } finally {
+                    inflater.end();
+                }
+            }
+            return bytes;
+        }
+
+        @Nonnull
+        private ByteBuffer region(long offset, int length) throws IOException {
+
+            if (offset < 0 || offset + length > size) {
+                throw new IllegalArgumentException("Zip region out of bounds");
+            }
+            final var index = (int) (offset / SEGMENT_SIZE);
+            final var segmentOffset = index * SEGMENT_SIZE;
+            final var segment = getSegment(index);
+            final var start = (int) (offset - segmentOffset);
+            return segment.slice(start, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Nonnull
+        private synchronized MappedByteBuffer getSegment(int index) throws IOException {
+
+            var segment = segments[index];
+            if (segment == null) {
+                final var offset = index * SEGMENT_SIZE;
+                segment = channel.map(READ_ONLY, offset, Math.min(size - offset, SEGMENT_SIZE + WINDOW_SIZE));
+                segments[index] = segment;
+            }
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package codes.writeonce.launcher;
+
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class ParallelXZInputStream extends InputStream {
+
+    private static final int MAX_BLOCK_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Nonnull
+    private final Path path;
+
+    @Nonnull
+    private final long[] blockSizes;
+
+    private final int maxPending;
+
+    @Nonnull
+    private final XZDecoderPool pool;
+
+    @Nonnull
+    private final ConcurrentLinkedQueue<SeekableXZInputStream> decoders = new ConcurrentLinkedQueue<>();
+
+    @Nonnull
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private int nextBlock;
+
+    private int currentBlock = -1;
+
+    @Nonnull
+    private byte[] current = EMPTY;
+
+    private int position;
+
+    private volatile boolean closed;
+
+    private ParallelXZInputStream(
+            @Nonnull Path path,
+            @Nonnull SeekableXZInputStream decoder,
+            int threads,
+            @Nonnull XZDecoderPool pool
+    ) {
+        this.path = path;
+        this.blockSizes = new long[decoder.getBlockCount()];
+        for (int i = 0; i < blockSizes.length; i++) {
+            blockSizes[i] = decoder.getBlockSize(i);
+        }
+        this.maxPending = threads;
+        this.pool = pool;
+        decoders.add(decoder);
+        prefetch();
+    }
+
+    @Nullable
+    public static ParallelXZInputStream open(@Nonnull Path path, int threads) throws IOException {
+        return open(path, threads, XZDecoderPool.SHARED);
+    }
+
+    @Nullable
+    public static ParallelXZInputStream open(@Nonnull Path path, int threads, @Nonnull XZDecoderPool pool)
+            throws IOException {
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid XZ decoder thread count: " + threads);
+        }
+        final var decoder = newDecoder(path);
+        try {
+            if (threads == 1 || decoder.getBlockCount() < 2 || decoder.getLargestBlockSize() > MAX_BLOCK_SIZE) {
+                decoder.close();
+                return null;
+            }
+            return new ParallelXZInputStream(path, decoder, threads, pool);
+        } catch (Throwable e) {
+            decoder.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return next() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        final var n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseCurrent();
+        var block = nextBlock - pending.size();
+        for (final var future : pending) {
+            future.cancel(true);
+            pool.release(blockSizes[block++]);
+        }
+        pending.clear();
+        closeDecoders();
+    }
+
+    private boolean next() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == current.length) {
+            releaseCurrent();
+            if (pending.isEmpty()) {
+                if (nextBlock == blockSizes.length) {
+                    return false;
+                }
+                try {
+                    pool.acquire(blockSizes[nextBlock]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while decoding " + path);
+                }
+                submit();
+            }
+            final var block = nextBlock - pending.size();
+            final var future = pending.remove();
+            currentBlock = block;
+            try {
+                current = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding " + path);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("Failed to decode " + path, e.getCause());
+            }
+            position = 0;
+            prefetch();
+        }
+        return true;
+    }
+
+    private void prefetch() {
+
+        while (nextBlock < blockSizes.length && pending.size() < maxPending && pool.tryAcquire(blockSizes[nextBlock])) {
+            submit();
+        }
+    }
+
+    private void submit() {
+        final var block = nextBlock++;
+        pending.add(pool.submit(() -> decode(block)));
+    }
+
+    private void releaseCurrent() {
+
+        current = EMPTY;
+        position = 0;
+        if (currentBlock >= 0) {
+            pool.release(blockSizes[currentBlock]);
+            currentBlock = -1;
+        }
+    }
+
+    @Nonnull
+    private byte[] decode(int block) throws IOException {
+
+        var decoder = decoders.poll();
+        if (decoder == null) {
+            decoder = newDecoder(path);
+        }
+        try {
+            decoder.seekToBlock(block);
+            final var bytes = new byte[(int) blockSizes[block]];
+            if (decoder.readNBytes(bytes, 0, bytes.length) != bytes.length) {
+                throw new EOFException("Unexpected end of XZ block " + block + " in " + path);
+            }
+            return bytes;
+        } finally {
+            decoders.add(decoder);
+            if (closed) {
+                closeDecoders();
+            }
+        }
+    }
+
+    private void closeDecoders() throws IOException {
+
+        IOException failure = null;
+        SeekableXZInputStream decoder;
+        while ((decoder = decoders.poll()) != null) {
+            try {
+                decoder.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Nonnull
+    private static SeekableXZInputStream newDecoder(@Nonnull Path path) throws IOException {
+
+        final var in = new SeekableFileInputStream(path.toFile());
+        try {
+            return new SeekableXZInputStream(in);
+        } catch (Throwable e) {
+            in.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNullElse;
+
+public class PlanInputs {
+
+    @Nonnull
+    private final Map<String, String> environment;
+
+    @Nonnull
+    private final TreeSet<String> environmentNames = new TreeSet<>();
+
+    @Nonnull
+    private final TreeSet<String> systemPropertyNames = new TreeSet<>();
+
+    public PlanInputs() {
+        this(System.getenv());
+    }
+
+    public PlanInputs(@Nonnull Map<String, String> environment) {
+        this.environment = environment;
+    }
+
+    @Nonnull
+    public String getenv(@Nonnull String name) {
+        environmentNames.add(name);
+        return getEnvironmentValue(environment, name);
+    }
+
+    @Nullable
+    public String getSystemProperty(@Nonnull String name) {
+        systemPropertyNames.add(name);
+        return System.getProperty(name);
+    }
+
+    @Nonnull
+    public List<String> getEnvironmentNames() {
+        return new ArrayList<>(environmentNames);
+    }
+
+    @Nonnull
+    public List<String> getSystemPropertyNames() {
+        return new ArrayList<>(systemPropertyNames);
+    }
+
+    @Nonnull
+    public static byte[] getKey(
+            @Nonnull List<String> environmentNames,
+            @Nonnull List<String> systemPropertyNames,
+            @Nonnull Map<String, String> environment
+    ) {
+
+        final var digest = LaunchPlan.newKeyDigest();
+        LaunchPlan.updateKey(digest, String.valueOf(environmentNames.size()));
+        for (final var name : environmentNames) {
+            LaunchPlan.updateKey(digest, name);
+            LaunchPlan.updateKey(digest, getEnvironmentValue(environment, name));
+        }
+        LaunchPlan.updateKey(digest, String.valueOf(systemPropertyNames.size()));
+        for (final var name : systemPropertyNames) {
+            final var value = System.getProperty(name);
+            LaunchPlan.updateKey(digest, name);
+            LaunchPlan.updateKey(digest, value == null ? null : value.getBytes(UTF_8));
+        }
+        return digest.digest();
+    }
+
+    @Nonnull
+    private static String getEnvironmentValue(@Nonnull Map<String, String> environment, @Nonnull String name) {
+        return requireNonNullElse(environment.get(name), "");
+    }
+}
@@ -0,0 +1,122 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class ProcessMetrics {
+
+    public static final int RECORD_SIZE = 56;
+
+    public final long timeMillis;
+
+    public final long pid;
+
+    public final long cpuMillis;
+
+    public final long rssBytes;
+
+    public final int threads;
+
+    public final int fds;
+
+    public final long readBytes;
+
+    public final long writeBytes;
+
+    public ProcessMetrics(
+            long timeMillis,
+            long pid,
+            long cpuMillis,
+            long rssBytes,
+            int threads,
+            int fds,
+            long readBytes,
+            long writeBytes
+    ) {
+        this.timeMillis = timeMillis;
+        this.pid = pid;
+        this.cpuMillis = cpuMillis;
+        this.rssBytes = rssBytes;
+        this.threads = threads;
+        this.fds = fds;
+        this.readBytes = readBytes;
+        this.writeBytes = writeBytes;
+    }
+
+    @Nonnull
+    public static Path getMetricsPath(@Nonnull Path commandPath) {
+        return commandPath.resolve("metrics.bin");
+    }
+
+    public void append(@Nonnull Path path, long maxSize) throws IOException {
+
+        if (maxSize > 0 && Files.exists(path) && Files.size(path) + RECORD_SIZE > maxSize) {
+            Files.move(path, path.resolveSibling(path.getFileName() + ".1"), REPLACE_EXISTING);
+        }
+
+        final var buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(timeMillis);
+        buffer.putLong(pid);
+        buffer.putLong(cpuMillis);
+        buffer.putLong(rssBytes);
+        buffer.putInt(threads);
+        buffer.putInt(fds);
+        buffer.putLong(readBytes);
+        buffer.putLong(writeBytes);
+        buffer.flip();
+
+        try (var channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    @Nonnull
+    public static List<ProcessMetrics> readLast(@Nonnull Path path, int count) throws IOException {
+
+        final var result = new ArrayList<ProcessMetrics>();
+        try (var channel = FileChannel.open(path, READ)) {
+            final var records = channel.size() / RECORD_SIZE;
+            final var first = Math.max(0, records - count);
+            final var buffer = ByteBuffer.allocate((int) (records - first) * RECORD_SIZE);
+            var position = first * RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                final var read = channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                result.add(new ProcessMetrics(
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getLong(),
+                        buffer.getLong()
+                ));
+            }
+        } catch (NoSuchFileException ignore) {
+            // not sampled yet
+        }
+        return result;
+    }
+}
@@ -0,0 +1,368 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ProcessSettings {
+
+    private static final String RLIMIT_PREFIX = "launcher.process.rlimit.";
+
+    private static final long EXEC_TIMEOUT_MILLIS = 5_000;
+
+    private static final Map<String, String> RLIMIT_LABELS = Map.ofEntries(
+            Map.entry("cpu", "Max cpu time"),
+            Map.entry("fsize", "Max file size"),
+            Map.entry("data", "Max data size"),
+            Map.entry("stack", "Max stack size"),
+            Map.entry("core", "Max core file size"),
+            Map.entry("rss", "Max resident set"),
+            Map.entry("nproc", "Max processes"),
+            Map.entry("nofile", "Max open files"),
+            Map.entry("memlock", "Max locked memory"),
+            Map.entry("as", "Max address space"),
+            Map.entry("locks", "Max file locks"),
+            Map.entry("sigpending", "Max pending signals"),
+            Map.entry("msgqueue", "Max msgqueue size"),
+            Map.entry("nice", "Max nice priority"),
+            Map.entry("rtprio", "Max realtime priority"),
+            Map.entry("rttime", "Max realtime timeout")
+    );
+
+    @Nullable
+    private final String cpus;
+
+    @Nullable
+    private final Integer nice;
+
+    @Nullable
+    private final Integer ioniceClass;
+
+    @Nullable
+    private final Integer ionicePriority;
+
+    @Nullable
+    private final Integer oomScoreAdj;
+
+    @Nonnull
+    private final Map<String, Rlimit> rlimits;
+
+    private ProcessSettings(
+            @Nullable String cpus,
+            @Nullable Integer nice,
+            @Nullable Integer ioniceClass,
+            @Nullable Integer ionicePriority,
+            @Nullable Integer oomScoreAdj,
+            @Nonnull Map<String, Rlimit> rlimits
+    ) {
+        this.cpus = cpus;
+        this.nice = nice;
+        this.ioniceClass = ioniceClass;
+        this.ionicePriority = ionicePriority;
+        this.oomScoreAdj = oomScoreAdj;
+        this.rlimits = rlimits;
+    }
+
+    @Nonnull
+    public static ProcessSettings of(@Nonnull Properties configProperties) {
+
+        final var cpus = getString(configProperties, "launcher.process.cpus");
+        if (cpus != null) {
+            parseCpuList(cpus);
+        }
+
+        final var nice = getInteger(configProperties, "launcher.process.nice", -20, 19);
+
+        final Integer ioniceClass;
+        final var ioniceClassValue = getString(configProperties, "launcher.process.ionice.class");
+        if (ioniceClassValue == null) {
+            ioniceClass = null;
+        } else {
+            ioniceClass = switch (ioniceClassValue) {
+                case "realtime", "1" -> 1;
+                case "best-effort", "2" -> 2;
+                case "idle", "3" -> 3;
+                default -> throw new IllegalArgumentException(
+                        "Invalid config property: launcher.process.ionice.class=" + ioniceClassValue);
+            };
+        }
+
+        final var ionicePriority = getInteger(configProperties, "launcher.process.ionice.priority", 0, 7);
+        if (ionicePriority != null && ioniceClass == null) {
+            throw new IllegalArgumentException(
+                    "Config property launcher.process.ionice.priority requires launcher.process.ionice.class");
+        }
+
+        final var oomScoreAdj = getInteger(configProperties, "launcher.process.oomScoreAdj", -1000, 1000);
+
+        final var rlimits = new TreeMap<String, Rlimit>();
+        for (final var name : configProperties.stringPropertyNames()) {
+            if (name.startsWith(RLIMIT_PREFIX)) {
+                final var resource = name.substring(RLIMIT_PREFIX.length());
+                if (!RLIMIT_LABELS.containsKey(resource)) {
+                    throw new IllegalArgumentException("Unknown rlimit resource: " + name);
+                }
+                final var value = getString(configProperties, name);
+                if (value != null) {
+                    rlimits.put(resource, Rlimit.parse(name, value));
+                }
+            }
+        }
+
+        return new ProcessSettings(cpus, nice, ioniceClass, ionicePriority, oomScoreAdj, rlimits);
+    }
+
+    public boolean isEmpty() {
+        return !isWrapped() && oomScoreAdj == null;
+    }
+
+    @Nonnull
+    public List<String> wrap(@Nonnull List<String> command) {
+
+        final var result = new ArrayList<String>();
+        if (!rlimits.isEmpty()) {
+            result.add("prlimit");
+            for (final var entry : rlimits.entrySet()) {
+                result.add("--" + entry.getKey() + "=" + entry.getValue());
+            }
+            result.add("--");
+        }
+        if (ioniceClass != null) {
+            result.add("ionice");
+            result.add("-c");
+            result.add(String.valueOf(ioniceClass));
+            if (ionicePriority != null) {
+                result.add("-n");
+                result.add(String.valueOf(ionicePriority));
+            }
+        }
+        if (nice != null) {
+            result.add("nice");
+            result.add("-n");
+            result.add(String.valueOf(nice));
+        }
+        if (cpus != null) {
+            result.add("taskset");
+            result.add("-c");
+            result.add(cpus);
+        }
+        result.addAll(command);
+        return result;
+    }
+
+    public void apply(long pid) throws IOException {
+
+        if (oomScoreAdj != null) {
+            Files.writeString(getProcPath(pid).resolve("oom_score_adj"), String.valueOf(oomScoreAdj), UTF_8);
+        }
+    }
+
+    @Nonnull
+    public List<String> verify(long pid, @Nonnull String javaCmd) throws IOException, InterruptedException {
+
+        final var procPath = getProcPath(pid);
+        final var mismatches = new ArrayList<String>();
+
+        try {
+            if (isWrapped()) {
+                final var javaPath = Path.of(javaCmd).toRealPath();
+                final var deadline = System.currentTimeMillis() + EXEC_TIMEOUT_MILLIS;
+                while (!Files.readSymbolicLink(procPath.resolve("exe")).equals(javaPath)) {
+                    if (System.currentTimeMillis() > deadline) {
+                        mismatches.add("process did not exec " + javaPath + " in " + EXEC_TIMEOUT_MILLIS + " ms");
+                        return mismatches;
+                    }
+                    Thread.sleep(10);
+                }
+            }
+
+            if (cpus != null) {
+                final var actual = getStatusValue(procPath, "Cpus_allowed_list");
+                if (actual == null || !parseCpuList(cpus).equals(parseCpuList(actual))) {
+                    mismatches.add("cpus: expected " + cpus + ", actual " + actual);
+                }
+            }
+
+            if (nice != null) {
+                final var stat = Files.readString(procPath.resolve("stat"), UTF_8);
+                final var actual = Integer.parseInt(stat.substring(stat.lastIndexOf(')') + 2).split(" ")[16]);
+                if (actual != nice) {
+                    mismatches.add("nice: expected " + nice + ", actual " + actual);
+                }
+            }
+
+            if (ioniceClass != null) {
+                final var actual = getIoPriority(pid);
+                final var expectedClass = switch (ioniceClass) {
+                    case 1 -> "realtime";
+                    case 2 -> "best-effort";
+                    default -> "idle";
+                };
+                final var expected = ionicePriority == null || ioniceClass == 3
+                        ? expectedClass
+                        : expectedClass + ": prio " + ionicePriority;
+                if (ionicePriority == null ? !actual.startsWith(expectedClass) : !expected.equals(actual)) {
+                    mismatches.add("ionice: expected " + expected + ", actual " + actual);
+                }
+            }
+
+            if (oomScoreAdj != null) {
+                final var actual = Integer.parseInt(
+                        Files.readString(procPath.resolve("oom_score_adj"), UTF_8).trim());
+                if (actual != oomScoreAdj) {
+                    mismatches.add("oom_score_adj: expected " + oomScoreAdj + ", actual " + actual);
+                }
+            }
+
+            if (!rlimits.isEmpty()) {
+                final var limits = Files.readAllLines(procPath.resolve("limits"), UTF_8);
+                for (final var entry : rlimits.entrySet()) {
+                    final var label = RLIMIT_LABELS.get(entry.getKey());
+                    final var expected = entry.getValue();
+                    final var actual = limits.stream()
+                            .filter(line -> line.startsWith(label + " "))
+                            .map(line -> line.substring(label.length()).trim().split("\\s+"))
+                            .findFirst()
+                            .map(fields -> new Rlimit(fields[0], fields[1]))
+                            .orElse(null);
+                    if (actual == null || !expected.soft.equals(actual.soft) || !expected.hard.equals(actual.hard)) {
+                        mismatches.add("rlimit " + entry.getKey() + ": expected " + expected + ", actual " + actual);
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            mismatches.add("process exited before verification");
+        }
+
+        return mismatches;
+    }
+
+    private boolean isWrapped() {
+        return cpus != null || nice != null || ioniceClass != null || !rlimits.isEmpty();
+    }
+
+    @Nonnull
+    private static Path getProcPath(long pid) {
+        return Path.of("/proc", String.valueOf(pid));
+    }
+
+    @Nullable
+    private static String getStatusValue(@Nonnull Path procPath, @Nonnull String name) throws IOException {
+
+        for (final var line : Files.readAllLines(procPath.resolve("status"), UTF_8)) {
+            if (line.startsWith(name + ":")) {
+                return line.substring(name.length() + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    private static String getIoPriority(long pid) throws IOException, InterruptedException {
+
+        final var process = new ProcessBuilder("ionice", "-p", String.valueOf(pid))
+                .redirectErrorStream(true)
+                .start();
+        final String output;
+        try (var in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), UTF_8).trim();
+        }
+        process.waitFor();
+        return output;
+    }
+
+    @Nonnull
+    static BitSet parseCpuList(@Nonnull String value) {
+
+        final var result = new BitSet();
+        try {
+            for (final var part : value.split(",")) {
+                final var range = part.trim();
+                final var dash = range.indexOf('-');
+                if (dash < 0) {
+                    result.set(Integer.parseInt(range));
+                } else {
+                    result.set(Integer.parseInt(range.substring(0, dash)),
+                            Integer.parseInt(range.substring(dash + 1)) + 1);
+                }
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid CPU list: " + value, e);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String getString(@Nonnull Properties properties, @Nonnull String name) {
+        final var value = properties.getProperty(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @Nullable
+    private static Integer getInteger(@Nonnull Properties properties, @Nonnull String name, int min, int max) {
+        final var value = getString(properties, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            final var result = Integer.parseInt(value);
+            if (result < min || result > max) {
+                throw new IllegalArgumentException("Config property out of range: " + name + "=" + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer config property: " + name + "=" + value, e);
+        }
+    }
+
+    private static class Rlimit {
+
+        @Nonnull
+        private final String soft;
+
+        @Nonnull
+        private final String hard;
+
+        private Rlimit(@Nonnull String soft, @Nonnull String hard) {
+            this.soft = soft;
+            this.hard = hard;
+        }
+
+        @Nonnull
+        private static Rlimit parse(@Nonnull String name, @Nonnull String value) {
+            try {
+                final var colon = value.indexOf(':');
+                if (colon < 0) {
+                    final var limit = parseLimit(value);
+                    return new Rlimit(limit, limit);
+                }
+                return new Rlimit(parseLimit(value.substring(0, colon)), parseLimit(value.substring(colon + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid rlimit config property: " + name + "=" + value, e);
+            }
+        }
+
+        @Nonnull
+        private static String parseLimit(@Nonnull String value) {
+            final var trimmed = value.trim();
+            return trimmed.equals("unlimited") ? trimmed : String.valueOf(parseSize(trimmed));
+        }
+
+        @Override
+        public String toString() {
+            return soft + ":" + hard;
+        }
+    }
+}
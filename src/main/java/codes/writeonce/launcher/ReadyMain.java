@@ -0,0 +1,275 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import static codes.writeonce.launcher.AbstractMain.getCommandConfigProperties;
+import static codes.writeonce.launcher.Utils.allOfFailFast;
+import static codes.writeonce.launcher.Utils.getCommandPath;
+import static codes.writeonce.launcher.Utils.getPid;
+import static codes.writeonce.launcher.Utils.getPidPath;
+import static codes.writeonce.launcher.Utils.parseDuration;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+public class ReadyMain {
+
+    private static final int PORT_CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private static final int PORT_RETRY_MILLIS = 50;
+
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        try (var repository = new Repository()) {
+            execute(repository, args, System.out);
+        }
+    }
+
+    public static void execute(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
+
+        String timeout = null;
+        var index = 0;
+        while (index < args.length && args[index].startsWith("--")) {
+            final var option = args[index];
+            if (option.startsWith("--timeout=")) {
+                timeout = option.substring("--timeout=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown ready option: " + option);
+            }
+            index++;
+        }
+
+        final var profile = args[index];
+        final var command = args[index + 1];
+
+        final var configProperties = getCommandConfigProperties(repository, profile, command);
+        if (timeout == null) {
+            timeout = configProperties.getProperty("launcher.ready.timeout");
+        }
+        final Long timeoutMillis = timeout == null ? null : parseDuration(timeout);
+
+        final var pidPath = getPidPath(repository, profile, command);
+        final var pid = getPid(pidPath);
+        if (pid == null) {
+            throw new IllegalStateException("Process PID file not found");
+        }
+        final var processHandle = ProcessHandle.of(pid).orElse(null);
+        if (processHandle == null || !processHandle.isAlive()) {
+            throw new IllegalStateException("Process is not alive for PID=" + pid);
+        }
+
+        final var commandPath = getCommandPath(repository, profile, command);
+        final var port = configProperties.getProperty("launcher.ready.port");
+        final var logPattern = configProperties.getProperty("launcher.ready.log.pattern");
+        final var file = configProperties.getProperty("launcher.ready.file");
+
+        if (port == null && logPattern == null && file == null) {
+            out.println("No readiness condition configured, process is alive for PID=" + pid);
+            return;
+        }
+
+        final var started = System.nanoTime();
+        final var executor = Executors.newCachedThreadPool();
+        try {
+            final var futures = new ArrayList<CompletableFuture<Void>>();
+            if (port != null) {
+                final var address = getAddress(port);
+                futures.add(runAsync(() -> awaitPort(address), "Port " + port + " accepting connections",
+                        started, executor, out));
+            }
+            if (logPattern != null) {
+                final var pattern = Pattern.compile(logPattern);
+                final var logFilePath = commandPath.resolve("log").resolve("output." + getTime(pidPath) + ".log");
+                futures.add(runAsync(() -> awaitLogPattern(logFilePath, pattern), "Log pattern matched",
+                        started, executor, out));
+            }
+            if (file != null) {
+                final var filePath = commandPath.resolve("work").resolve(file).toAbsolutePath();
+                futures.add(runAsync(() -> awaitFile(filePath), "Ready file " + file + " found",
+                        started, executor, out));
+            }
+
+            final var ready = allOfFailFast(futures);
+            processHandle.onExit().thenRun(() -> ready.completeExceptionally(
+                    new IllegalStateException("Process exited before becoming ready for PID=" + pid)));
+
+            out.println("Process readiness waiting initiated for PID=" + pid);
+            if (timeoutMillis == null) {
+                ready.get();
+            } else {
+                try {
+                    ready.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException(
+                            "Process not ready within " + timeoutMillis + " ms for PID=" + pid);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final var waited = (System.nanoTime() - started) / 1_000_000;
+        final var startInstant = processHandle.info().startInstant().orElse(null);
+        out.println("Process ready for PID=" + pid + " in " + waited + " ms" + (startInstant == null
+                ? ""
+                : ", " + Duration.between(startInstant, Instant.now()).toMillis() + " ms after process start"));
+    }
+
+    @Nonnull
+    private static CompletableFuture<Void> runAsync(
+            @Nonnull Condition condition,
+            @Nonnull String description,
+            long started,
+            @Nonnull Executor executor,
+            @Nonnull PrintStream out
+    ) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                condition.await();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            out.println(description + " after " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        }, executor);
+    }
+
+    @Nonnull
+    private static String getTime(@Nonnull Path pidPath) throws IOException {
+        try {
+            return Files.readString(pidPath.resolveSibling("time"), UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("Process log time not recorded in " + e.getFile(), e);
+        }
+    }
+
+    @Nonnull
+    private static InetSocketAddress getAddress(@Nonnull String value) {
+
+        final var separator = value.lastIndexOf(':');
+        try {
+            return separator == -1
+                    ? new InetSocketAddress("localhost", Integer.parseInt(value))
+                    : new InetSocketAddress(value.substring(0, separator),
+                            Integer.parseInt(value.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ready port: " + value, e);
+        }
+    }
+
+    private static void awaitPort(@Nonnull InetSocketAddress address) throws InterruptedException {
+
+        while (true) {
+            try (var socket = new Socket()) {
+                socket.connect(address, PORT_CONNECT_TIMEOUT_MILLIS);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(PORT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private static void awaitLogPattern(@Nonnull Path logFilePath, @Nonnull Pattern pattern)
+            throws IOException, InterruptedException {
+
+        final var logPath = logFilePath.getParent();
+        try (var watchService = logPath.getFileSystem().newWatchService()) {
+            logPath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+            final var line = new ByteArrayOutputStream();
+            final var buffer = ByteBuffer.allocate(0x10000);
+            var offset = 0L;
+
+            while (true) {
+                try (var channel = FileChannel.open(logFilePath, READ)) {
+                    if (channel.size() < offset) {
+                        offset = 0;
+                        line.reset();
+                    }
+                    channel.position(offset);
+                    while (channel.read(buffer) > 0) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            final var b = buffer.get();
+                            if (b == '\n') {
+                                if (pattern.matcher(line.toString(UTF_8)).find()) {
+                                    return;
+                                }
+                                line.reset();
+                            } else {
+                                line.write(b);
+                            }
+                        }
+                        buffer.clear();
+                    }
+                    offset = channel.position();
+                } catch (NoSuchFileException ignore) {
+                    // not created yet or being rotated
+                }
+                if (line.size() != 0 && pattern.matcher(line.toString(UTF_8)).find()) {
+                    return;
+                }
+                final var key = watchService.take();
+                key.pollEvents();
+                key.reset();
+            }
+        }
+    }
+
+    private static void awaitFile(@Nonnull Path filePath) throws IOException, InterruptedException {
+
+        try (var watchService = filePath.getFileSystem().newWatchService()) {
+            while (!Files.exists(filePath)) {
+                final var directory = getExistingParent(filePath);
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                if (Files.exists(filePath) || !directory.equals(getExistingParent(filePath))) {
+                    continue;
+                }
+                final var key = watchService.take();
+                key.pollEvents();
+                key.reset();
+            }
+        }
+    }
+
+    @Nonnull
+    private static Path getExistingParent(@Nonnull Path path) {
+
+        var parent = path.getParent();
+        while (!Files.isDirectory(parent)) {
+            parent = parent.getParent();
+        }
+        return parent;
+    }
+
+    private interface Condition {
+
+        void await() throws IOException, InterruptedException;
+    }
+}
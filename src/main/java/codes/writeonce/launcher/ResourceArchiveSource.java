@@ -0,0 +1,39 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Resource;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+public class ResourceArchiveSource implements ArchiveSource {
+
+    @Nonnull
+    private final Resource resource;
+
+    public ResourceArchiveSource(@Nonnull Resource resource) {
+        this.resource = requireNonNull(resource);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return resource.getPath().getFileName().toString();
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return resource.getInputStream();
+    }
+
+    @Nonnull
+    @Override
+    public Path getFile() throws ExecutionException, InterruptedException {
+        return resource.getCompletableFuture().get();
+    }
+}
@@ -0,0 +1,169 @@
+package codes.writeonce.launcher;
+
+import codes.writeonce.repository.Repository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static codes.writeonce.launcher.ProcessMetrics.getMetricsPath;
+import static codes.writeonce.launcher.Utils.getPid;
+import static codes.writeonce.launcher.Utils.parseDuration;
+import static codes.writeonce.launcher.Utils.parseSize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class SamplerMain {
+
+    private static final long DEFAULT_CLOCK_TICKS_PER_SECOND = 100;
+
+    private static final long CLOCK_TICKS_PER_SECOND = getClockTicksPerSecond();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        var intervalMillis = parseDuration("10s");
+        var maxSize = parseSize("16M");
+        for (final var option : args) {
+            if (option.startsWith("--interval=")) {
+                intervalMillis = parseDuration(option.substring("--interval=".length()));
+            } else if (option.startsWith("--max-size=")) {
+                maxSize = parseSize(option.substring("--max-size=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown sampler option: " + option);
+            }
+        }
+
+        try (var repository = new Repository()) {
+            final var commandsPath = repository.launcherDir.resolve("commands");
+            while (true) {
+                final var started = System.currentTimeMillis();
+                try {
+                    sampleAll(commandsPath, maxSize);
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+                Thread.sleep(Math.max(0, started + intervalMillis - System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private static void sampleAll(@Nonnull Path commandsPath, long maxSize) throws IOException {
+
+        if (!Files.isDirectory(commandsPath)) {
+            return;
+        }
+
+        try (var profiles = Files.list(commandsPath)) {
+            for (final var profilePath : (Iterable<Path>) profiles::iterator) {
+                try {
+                    if (Files.isDirectory(profilePath)) {
+                        sampleProfile(profilePath, maxSize);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void sampleProfile(@Nonnull Path profilePath, long maxSize) throws IOException {
+
+        try (var commands = Files.list(profilePath)) {
+            for (final var commandPath : (Iterable<Path>) commands::iterator) {
+                try {
+                    final var pid = getPid(commandPath.resolve("run").resolve("process.pid"));
+                    if (pid == null) {
+                        continue;
+                    }
+                    final var metrics = sample(pid);
+                    if (metrics != null) {
+                        metrics.append(getMetricsPath(commandPath), maxSize);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Nullable
+    public static ProcessMetrics sample(long pid) throws IOException {
+
+        final var procPath = Path.of("/proc", String.valueOf(pid));
+        try {
+            final var stat = Files.readString(procPath.resolve("stat"), UTF_8);
+            final var fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            final var cpuTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            final var threads = Integer.parseInt(fields[17]);
+
+            var rssBytes = 0L;
+            for (final var line : Files.readAllLines(procPath.resolve("status"), UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    rssBytes = Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+                    break;
+                }
+            }
+
+            var readBytes = -1L;
+            var writeBytes = -1L;
+            try {
+                for (final var line : Files.readAllLines(procPath.resolve("io"), UTF_8)) {
+                    if (line.startsWith("read_bytes:")) {
+                        readBytes = Long.parseLong(line.substring("read_bytes:".length()).trim());
+                    } else if (line.startsWith("write_bytes:")) {
+                        writeBytes = Long.parseLong(line.substring("write_bytes:".length()).trim());
+                    }
+                }
+            } catch (AccessDeniedException ignore) {
+                // io is readable only by the owner
+            }
+
+            var fds = -1;
+            try (var paths = Files.list(procPath.resolve("fd"))) {
+                fds = (int) paths.count();
+            } catch (AccessDeniedException ignore) {
+                // fd is readable only by the owner
+            }
+
+            return new ProcessMetrics(
+                    System.currentTimeMillis(),
+                    pid,
+                    cpuTicks * 1000 / CLOCK_TICKS_PER_SECOND,
+                    rssBytes,
+                    threads,
+                    fds,
+                    readBytes,
+                    writeBytes
+            );
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static long getClockTicksPerSecond() {
+
+        try {
+            final var process = new ProcessBuilder("getconf", "CLK_TCK")
+                    .redirectErrorStream(true)
+                    .start();
+            final String output;
+            try (var in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), UTF_8).trim();
+            }
+            if (process.waitFor() == 0) {
+                final var value = Long.parseLong(output);
+                if (value > 0) {
+                    return value;
+                }
+            }
+        } catch (IOException | NumberFormatException ignore) {
+            // fall back to the Linux default
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return DEFAULT_CLOCK_TICKS_PER_SECOND;
+    }
+}
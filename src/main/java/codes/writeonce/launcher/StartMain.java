@@ -1,15 +1,28 @@
 package codes.writeonce.launcher;
 
+import codes.writeonce.repository.Repository;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.lang.ProcessBuilder.Redirect;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 
+import static codes.writeonce.launcher.Utils.getBooleanProperty;
+import static codes.writeonce.launcher.Utils.getDurationProperty;
+import static codes.writeonce.launcher.Utils.getIntProperty;
+import static codes.writeonce.launcher.Utils.getSizeProperty;
+import static codes.writeonce.launcher.Utils.getTmpPath;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public class StartMain extends AbstractMain {
 
@@ -17,6 +30,23 @@ public class StartMain extends AbstractMain {
         new StartMain().run(args);
     }
 
+    public static void execute(
+            @Nonnull Repository repository,
+            @Nonnull String[] args,
+            @Nonnull Map<String, String> environment,
+            @Nonnull PrintStream out
+    ) throws IOException, ExecutionException, InterruptedException {
+        new StartMain(environment).run(repository, args, out);
+    }
+
+    public StartMain() {
+        // empty
+    }
+
+    public StartMain(@Nonnull Map<String, String> environment) {
+        super(environment);
+    }
+
     @Override
     protected void doStart(
             Path pidPath,
@@ -26,35 +56,83 @@ public class StartMain extends AbstractMain {
             String javaCmd,
             Path commandPath,
             Path logPath,
-            Path workPath
-    ) throws IOException {
+            Path workPath,
+            PrintStream out
+    ) throws IOException, InterruptedException {
+
+        final var settings = ProcessSettings.of(configProperties);
+        final var controlGroup = ControlGroup.create(configProperties, commandPath);
+
+        final var timePath = pidPath.resolveSibling("time");
+        final var timeTmpPath = getTmpPath(timePath);
+        Files.writeString(timeTmpPath, configProperties.getProperty("time.fileName"), UTF_8);
+        Files.move(timeTmpPath, timePath, ATOMIC_MOVE, REPLACE_EXISTING);
 
         final Process process;
         if (Files.exists(Path.of("/dev/fd"))) {
-            process =
-                    commonStart(configProperties, environmentProperties, javaCmd, logPath, workPath, "@/dev/fd/0");
-            try (var out = process.getOutputStream();
-                 var writer = new OutputStreamWriter(out)) {
+            process = commonStart(configProperties, getEnvironment(), environmentProperties, settings, javaCmd,
+                    logPath, workPath, "@/dev/fd/0");
+            attach(configProperties, controlGroup, process, commandPath, out);
+            try (var processOut = process.getOutputStream();
+                 var writer = new OutputStreamWriter(processOut)) {
                 writer.write(commandArguments);
             }
         } else {
             final var argsPath = commandPath.resolve("args");
-            try (var out = Files.newOutputStream(argsPath);
-                 var writer = new OutputStreamWriter(out)) {
+            try (var argsOut = Files.newOutputStream(argsPath);
+                 var writer = new OutputStreamWriter(argsOut)) {
                 writer.write(commandArguments);
             }
-            process = commonStart(configProperties, environmentProperties, javaCmd, logPath, workPath,
-                    '@' + argsPath.toString());
+            process = commonStart(configProperties, getEnvironment(), environmentProperties, settings, javaCmd,
+                    logPath, workPath, '@' + argsPath.toString());
+            attach(configProperties, controlGroup, process, commandPath, out);
             process.getOutputStream().close();
         }
 
         Files.writeString(pidPath, String.valueOf(process.pid()), UTF_8);
+
+        if (!settings.isEmpty()) {
+            settings.apply(process.pid());
+            final var mismatches = settings.verify(process.pid(), javaCmd);
+            if (mismatches.isEmpty()) {
+                out.println("Process settings verified for PID=" + process.pid());
+            } else {
+                for (final var mismatch : mismatches) {
+                    out.println("WARNING: process setting not applied for PID=" + process.pid() + ": " + mismatch);
+                }
+            }
+        }
+    }
+
+    private static void attach(
+            @Nonnull Properties configProperties,
+            @Nullable ControlGroup controlGroup,
+            @Nonnull Process process,
+            @Nonnull Path commandPath,
+            @Nonnull PrintStream out
+    ) throws IOException, InterruptedException {
+        if (controlGroup != null) {
+            try {
+                controlGroup.attach(process.pid(), commandPath);
+                out.println("Process PID=" + process.pid() + " moved to control group " + controlGroup.getPath());
+            } catch (IOException e) {
+                if (getBooleanProperty(configProperties, "launcher.cgroup.required", true)) {
+                    process.destroyForcibly().waitFor();
+                    throw new IOException("Failed to move PID=" + process.pid() + " to control group "
+                                          + controlGroup.getPath() + ", process killed", e);
+                }
+                out.println("WARNING: failed to move PID=" + process.pid() + " to control group "
+                            + controlGroup.getPath() + ": " + e);
+            }
+        }
     }
 
     @Nonnull
     private static Process commonStart(
             @Nonnull Properties configProperties,
+            @Nonnull Map<String, String> environment,
             @Nonnull Properties environmentProperties,
+            @Nonnull ProcessSettings settings,
             @Nonnull String javaCmd,
             @Nonnull Path logPath,
             @Nonnull Path workPath,
@@ -62,14 +140,40 @@ public class StartMain extends AbstractMain {
     ) throws IOException {
 
         final var time = configProperties.getProperty("time.fileName");
-        final var pb = new ProcessBuilder(javaCmd, args);
+        final var pb = new ProcessBuilder(settings.wrap(List.of(javaCmd, args)));
         final var env = pb.environment();
+        env.clear();
+        env.putAll(environment);
         for (final var name : environmentProperties.stringPropertyNames()) {
             env.put(name, environmentProperties.getProperty(name));
         }
-        pb.redirectOutput(Redirect.appendTo(logPath.resolve("output." + time + ".log").toFile()));
         pb.redirectErrorStream(true);
         pb.directory(workPath.toFile());
-        return pb.start();
+
+        if (!getBooleanProperty(configProperties, "launcher.log.pump", false)) {
+            pb.redirectOutput(Redirect.appendTo(logPath.resolve("output." + time + ".log").toFile()));
+            return pb.start();
+        }
+
+        final var pump = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx64m",
+                "-XX:+UseSerialGC",
+                "-XX:TieredStopAtLevel=1",
+                "-cp",
+                System.getProperty("java.class.path"),
+                LogPumpMain.class.getName(),
+                logPath.toAbsolutePath().toString(),
+                "output." + time,
+                String.valueOf(getSizeProperty(configProperties, "launcher.log.maxSize", 0)),
+                String.valueOf(getDurationProperty(configProperties, "launcher.log.maxAge", 0)),
+                configProperties.getProperty("launcher.log.compress", "gzip").trim(),
+                String.valueOf(getIntProperty(configProperties, "launcher.log.retain.count", 0)),
+                String.valueOf(getSizeProperty(configProperties, "launcher.log.retain.bytes", 0))
+        );
+        pump.redirectOutput(Redirect.appendTo(logPath.resolveSibling("run").resolve("pump.log").toFile()));
+        pump.redirectErrorStream(true);
+        pump.directory(logPath.toFile());
+        return ProcessBuilder.startPipeline(List.of(pb, pump)).get(0);
     }
 }
@@ -2,38 +2,454 @@ package codes.writeonce.launcher;
 
 import codes.writeonce.repository.Repository;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 
+import static codes.writeonce.launcher.ProcessMetrics.getMetricsPath;
 import static codes.writeonce.launcher.Utils.getPid;
 import static codes.writeonce.launcher.Utils.getPidPath;
 
 public class StatusMain {
 
-    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+    private static final long RATE_WINDOW_MILLIS = 60_000;
 
-        final var profile = args[0];
-        final var command = args[1];
+    private static final int RATE_WINDOW_RECORDS = 64;
 
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
         try (var repository = new Repository()) {
+            execute(repository, args, System.out);
+        }
+    }
+
+    public static void execute(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
+
+        var json = false;
+        var bulk = false;
+        var index = 0;
+        while (index < args.length && args[index].startsWith("--")) {
+            switch (args[index]) {
+                case "--all" -> bulk = true;
+                case "--json" -> {
+                    bulk = true;
+                    json = true;
+                }
+                case "--lines" -> {
+                    bulk = true;
+                    json = false;
+                }
+                default -> throw new IllegalArgumentException("Unknown status option: " + args[index]);
+            }
+            index++;
+        }
+
+        final var positional = List.of(args).subList(index, args.length);
+        if (!bulk && positional.size() == 2) {
+            executeSingle(repository, positional.get(0), positional.get(1), out);
+            return;
+        }
+        if (positional.size() > 2) {
+            throw new IllegalArgumentException("Too many status arguments");
+        }
+
+        final var statuses = getStatuses(repository,
+                positional.isEmpty() ? null : positional.get(0),
+                positional.size() < 2 ? null : positional.get(1));
 
-            final var pidPath = getPidPath(repository, profile, command);
-            final var pid = getPid(pidPath);
-            if (pid == null) {
-                System.out.println("Process PID file not found");
+        if (json) {
+            printJson(statuses, out);
+        } else {
+            for (final var status : statuses) {
+                out.println(String.join("\t", getColumns(status)));
+            }
+        }
+    }
+
+    private static void executeSingle(
+            @Nonnull Repository repository,
+            @Nonnull String profile,
+            @Nonnull String command,
+            @Nonnull PrintStream out
+    ) throws IOException {
+
+        final var pidPath = getPidPath(repository, profile, command);
+        final var pid = getPid(pidPath);
+        if (pid == null) {
+            out.println("Process PID file not found");
+        } else {
+            final var processHandle = ProcessHandle.of(pid).orElse(null);
+            if (processHandle == null) {
+                out.println("Process not found for PID=" + pid);
+                Files.deleteIfExists(pidPath);
+            } else if (!processHandle.isAlive()) {
+                out.println("Process is not alive for PID=" + pid);
+                Files.deleteIfExists(pidPath);
             } else {
-                final var processHandle = ProcessHandle.of(pid).orElse(null);
-                if (processHandle == null) {
-                    System.out.println("Process not found for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else if (!processHandle.isAlive()) {
-                    System.out.println("Process is not alive for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else {
-                    System.out.println("Process is alive for PID=" + pid);
+                out.println("Process is alive for PID=" + pid);
+            }
+        }
+    }
+
+    @Nonnull
+    public static List<CommandStatus> getStatuses(
+            @Nonnull Repository repository,
+            @Nullable String profile,
+            @Nullable String command
+    ) throws IOException {
+
+        final var commandsPath = repository.launcherDir.resolve("commands");
+        final var commandPaths = new ArrayList<Path>();
+        if (Files.isDirectory(commandsPath)) {
+            try (var profiles = Files.list(commandsPath)) {
+                for (final var profilePath : (Iterable<Path>) profiles::iterator) {
+                    if (!Files.isDirectory(profilePath)
+                        || profile != null && !profilePath.getFileName().toString().equals(profile)) {
+                        continue;
+                    }
+                    try (var commands = Files.list(profilePath)) {
+                        for (final var commandPath : (Iterable<Path>) commands::iterator) {
+                            if (Files.isDirectory(commandPath)
+                                && (command == null || commandPath.getFileName().toString().equals(command))) {
+                                commandPaths.add(commandPath);
+                            }
+                        }
+                    }
                 }
             }
         }
+
+        try {
+            return commandPaths.parallelStream()
+                    .map(StatusMain::getStatus)
+                    .sorted(Comparator.comparing((CommandStatus e) -> e.profile).thenComparing(e -> e.command))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Nonnull
+    private static CommandStatus getStatus(@Nonnull Path commandPath) {
+
+        try {
+            final var pid = getPid(commandPath.resolve("run").resolve("process.pid"));
+            final var processHandle = pid == null ? null : ProcessHandle.of(pid).orElse(null);
+            final var alive = processHandle != null && processHandle.isAlive();
+            final var state = pid == null ? "stopped" : alive ? "running" : "dead";
+            final var uptime = alive
+                    ? processHandle.info().startInstant().map(e -> Duration.between(e, Instant.now())).orElse(null)
+                    : null;
+            return new CommandStatus(
+                    commandPath.getParent().getFileName().toString(),
+                    commandPath.getFileName().toString(),
+                    state,
+                    pid,
+                    uptime,
+                    getLastLog(commandPath.resolve("log")),
+                    alive ? getResources(commandPath, pid) : null,
+                    alive ? ControlGroup.readStats(commandPath) : null
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Nullable
+    private static ResourceUsage getResources(@Nonnull Path commandPath, long pid) throws IOException {
+
+        final var records = ProcessMetrics.readLast(getMetricsPath(commandPath), RATE_WINDOW_RECORDS);
+        if (records.isEmpty()) {
+            return null;
+        }
+        final var latest = records.get(records.size() - 1);
+        if (latest.pid != pid) {
+            return null;
+        }
+        ProcessMetrics base = null;
+        for (final var record : records) {
+            if (record != latest && record.pid == pid && record.timeMillis >= latest.timeMillis - RATE_WINDOW_MILLIS
+                && record.timeMillis < latest.timeMillis) {
+                base = record;
+                break;
+            }
+        }
+        return new ResourceUsage(latest, base);
+    }
+
+    @Nullable
+    private static Path getLastLog(@Nonnull Path logPath) throws IOException {
+
+        if (!Files.isDirectory(logPath)) {
+            return null;
+        }
+        Path lastLog = null;
+        var lastModified = Long.MIN_VALUE;
+        try (var paths = Files.list(logPath)) {
+            for (final var path : (Iterable<Path>) paths::iterator) {
+                final long modified;
+                try {
+                    modified = Files.getLastModifiedTime(path).toMillis();
+                } catch (NoSuchFileException ignore) {
+                    continue;
+                }
+                if (Files.isRegularFile(path) && modified > lastModified) {
+                    lastLog = path;
+                    lastModified = modified;
+                }
+            }
+        }
+        return lastLog;
+    }
+
+    @Nonnull
+    private static List<String> getColumns(@Nonnull CommandStatus status) {
+
+        final var columns = new ArrayList<String>();
+        columns.add(status.profile);
+        columns.add(status.command);
+        columns.add(status.state);
+        columns.add(status.pid == null ? "-" : String.valueOf(status.pid));
+        columns.add(status.uptime == null ? "-" : String.valueOf(status.uptime.toSeconds()));
+        columns.add(status.lastLog == null ? "-" : status.lastLog.toString());
+
+        final var resources = status.resources;
+        if (resources == null) {
+            addPlaceholders(columns, 6);
+        } else {
+            final var cpuPercent = resources.getCpuPercent();
+            columns.add(cpuPercent == null ? "-" : String.format(Locale.ROOT, "%.1f", cpuPercent));
+            columns.add(toColumn(resources.latest.rssBytes));
+            columns.add(toColumn(resources.latest.threads));
+            columns.add(toColumn(resources.latest.fds));
+            final var readRate = resources.getReadRate();
+            columns.add(readRate == null ? "-" : String.valueOf(readRate));
+            final var writeRate = resources.getWriteRate();
+            columns.add(writeRate == null ? "-" : String.valueOf(writeRate));
+        }
+
+        final var cgroup = status.cgroup;
+        if (cgroup == null) {
+            addPlaceholders(columns, 9);
+        } else {
+            columns.add(toColumn(cgroup.memoryCurrent));
+            columns.add(cgroup.memoryMax == null ? "-" : cgroup.memoryMax);
+            columns.add(toColumn(cgroup.memoryPeak));
+            columns.add(toColumn(cgroup.memoryHighEvents));
+            columns.add(toColumn(cgroup.oomKills));
+            columns.add(cgroup.cpuUsageMicros < 0 ? "-" : String.valueOf(cgroup.cpuUsageMicros / 1000));
+            columns.add(cgroup.throttledMicros < 0 ? "-" : String.valueOf(cgroup.throttledMicros / 1000));
+            columns.add(toColumn(cgroup.ioReadBytes));
+            columns.add(toColumn(cgroup.ioWriteBytes));
+        }
+        return columns;
+    }
+
+    private static void addPlaceholders(@Nonnull List<String> columns, int count) {
+        for (int i = 0; i < count; i++) {
+            columns.add("-");
+        }
+    }
+
+    @Nonnull
+    private static String toColumn(long value) {
+        return value < 0 ? "-" : String.valueOf(value);
+    }
+
+    private static void printJson(@Nonnull List<CommandStatus> statuses, @Nonnull PrintStream out) {
+
+        final var builder = new StringBuilder("[");
+        for (final var status : statuses) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append("\n  {\"profile\":");
+            appendJsonString(builder, status.profile);
+            builder.append(",\"command\":");
+            appendJsonString(builder, status.command);
+            builder.append(",\"state\":");
+            appendJsonString(builder, status.state);
+            builder.append(",\"alive\":").append(status.state.equals("running"));
+            builder.append(",\"pid\":").append(status.pid);
+            builder.append(",\"uptimeSeconds\":").append(status.uptime == null ? null : status.uptime.toSeconds());
+            builder.append(",\"lastLog\":");
+            if (status.lastLog == null) {
+                builder.append("null");
+            } else {
+                appendJsonString(builder, status.lastLog.toString());
+            }
+            builder.append(",\"resources\":");
+            if (status.resources == null) {
+                builder.append("null");
+            } else {
+                final var resources = status.resources;
+                builder.append("{\"sampledAt\":").append(resources.latest.timeMillis);
+                builder.append(",\"cpuMillis\":").append(resources.latest.cpuMillis);
+                builder.append(",\"rssBytes\":").append(resources.latest.rssBytes);
+                builder.append(",\"threads\":").append(resources.latest.threads);
+                builder.append(",\"fds\":").append(resources.latest.fds);
+                builder.append(",\"readBytes\":").append(resources.latest.readBytes);
+                builder.append(",\"writeBytes\":").append(resources.latest.writeBytes);
+                builder.append(",\"cpuPercent\":").append(resources.getCpuPercent());
+                builder.append(",\"readBytesPerSecond\":").append(resources.getReadRate());
+                builder.append(",\"writeBytesPerSecond\":").append(resources.getWriteRate());
+                builder.append('}');
+            }
+            builder.append(",\"cgroup\":");
+            if (status.cgroup == null) {
+                builder.append("null");
+            } else {
+                final var cgroup = status.cgroup;
+                builder.append("{\"path\":");
+                appendJsonString(builder, cgroup.path.toString());
+                builder.append(",\"memoryCurrent\":").append(cgroup.memoryCurrent);
+                builder.append(",\"memoryPeak\":").append(cgroup.memoryPeak);
+                builder.append(",\"memoryMax\":");
+                appendJsonStringOrNull(builder, cgroup.memoryMax);
+                builder.append(",\"memoryHigh\":");
+                appendJsonStringOrNull(builder, cgroup.memoryHigh);
+                builder.append(",\"memoryHighEvents\":").append(cgroup.memoryHighEvents);
+                builder.append(",\"oomKills\":").append(cgroup.oomKills);
+                builder.append(",\"cpuUsageMicros\":").append(cgroup.cpuUsageMicros);
+                builder.append(",\"throttledPeriods\":").append(cgroup.throttledPeriods);
+                builder.append(",\"throttledMicros\":").append(cgroup.throttledMicros);
+                builder.append(",\"ioReadBytes\":").append(cgroup.ioReadBytes);
+                builder.append(",\"ioWriteBytes\":").append(cgroup.ioWriteBytes);
+                builder.append('}');
+            }
+            builder.append('}');
+        }
+        builder.append(statuses.isEmpty() ? "]" : "\n]");
+        out.println(builder);
+    }
+
+    private static void appendJsonStringOrNull(@Nonnull StringBuilder builder, @Nullable String value) {
+        if (value == null) {
+            builder.append("null");
+        } else {
+            appendJsonString(builder, value);
+        }
+    }
+
+    public static void appendJsonString(@Nonnull StringBuilder builder, @Nonnull String value) {
+
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 32) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+    }
+
+    public static class CommandStatus {
+
+        @Nonnull
+        public final String profile;
+
+        @Nonnull
+        public final String command;
+
+        @Nonnull
+        public final String state;
+
+        @Nullable
+        public final Long pid;
+
+        @Nullable
+        public final Duration uptime;
+
+        @Nullable
+        public final Path lastLog;
+
+        @Nullable
+        public final ResourceUsage resources;
+
+        @Nullable
+        public final ControlGroup.Stats cgroup;
+
+        public CommandStatus(
+                @Nonnull String profile,
+                @Nonnull String command,
+                @Nonnull String state,
+                @Nullable Long pid,
+                @Nullable Duration uptime,
+                @Nullable Path lastLog,
+                @Nullable ResourceUsage resources,
+                @Nullable ControlGroup.Stats cgroup
+        ) {
+            this.profile = profile;
+            this.command = command;
+            this.state = state;
+            this.pid = pid;
+            this.uptime = uptime;
+            this.lastLog = lastLog;
+            this.resources = resources;
+            this.cgroup = cgroup;
+        }
+    }
+
+    public static class ResourceUsage {
+
+        @Nonnull
+        public final ProcessMetrics latest;
+
+        @Nullable
+        public final ProcessMetrics base;
+
+        public ResourceUsage(@Nonnull ProcessMetrics latest, @Nullable ProcessMetrics base) {
+            this.latest = latest;
+            this.base = base;
+        }
+
+        @Nullable
+        public Double getCpuPercent() {
+            if (base == null) {
+                return null;
+            }
+            return (latest.cpuMillis - base.cpuMillis) * 100.0 / (latest.timeMillis - base.timeMillis);
+        }
+
+        @Nullable
+        public Long getReadRate() {
+            return getRate(base == null ? -1 : base.readBytes, latest.readBytes);
+        }
+
+        @Nullable
+        public Long getWriteRate() {
+            return getRate(base == null ? -1 : base.writeBytes, latest.writeBytes);
+        }
+
+        @Nullable
+        private Long getRate(long from, long to) {
+            if (base == null || from < 0 || to < 0) {
+                return null;
+            }
+            return (to - from) * 1000 / (latest.timeMillis - base.timeMillis);
+        }
     }
 }
@@ -2,45 +2,149 @@ package codes.writeonce.launcher;
 
 import codes.writeonce.repository.Repository;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static codes.writeonce.launcher.Utils.getPid;
 import static codes.writeonce.launcher.Utils.getPidPath;
+import static codes.writeonce.launcher.Utils.parseDuration;
 
 public class StopMain {
 
     public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
-
-        final var profile = args[0];
-        final var command = args[1];
-
         try (var repository = new Repository()) {
+            execute(repository, args, System.out);
+        }
+    }
 
-            final var pidPath = getPidPath(repository, profile, command);
-            final var pid = getPid(pidPath);
-            if (pid == null) {
-                System.out.println("Process PID file not found");
+    public static void execute(@Nonnull Repository repository, @Nonnull String[] args, @Nonnull PrintStream out)
+            throws IOException, ExecutionException, InterruptedException {
+
+        Long graceMillis = null;
+        var index = 0;
+        while (index < args.length && args[index].startsWith("--")) {
+            final var option = args[index];
+            if (option.startsWith("--grace=")) {
+                graceMillis = parseDuration(option.substring("--grace=".length()));
             } else {
-                final var processHandle = ProcessHandle.of(pid).orElse(null);
-                if (processHandle == null) {
-                    System.out.println("Process not found for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else if (!processHandle.isAlive()) {
-                    System.out.println("Process is not alive for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else if (!processHandle.supportsNormalTermination()) {
-                    System.out.println("Graceful termination not supported for PID=" + pid);
-                } else if (processHandle.destroy()) {
-                    System.out.println("Process termination initiated for PID=" + pid);
-                    processHandle.onExit().get();
-                    System.out.println("Process terminated successfully for PID=" + pid);
-                    Files.deleteIfExists(pidPath);
-                } else {
-                    System.out.println("Cannot terminate process for PID=" + pid);
+                throw new IllegalArgumentException("Unknown stop option: " + option);
+            }
+            index++;
+        }
+
+        final var profile = args[index];
+        final var commands = new TreeSet<>(List.of(args).subList(index + 1, args.length));
+        if (commands.isEmpty()) {
+            final var profilePath = repository.launcherDir.resolve("commands").resolve(profile);
+            if (Files.isDirectory(profilePath)) {
+                try (var paths = Files.list(profilePath)) {
+                    paths.map(e -> e.getFileName().toString())
+                            .filter(e -> Files.exists(getPidPath(repository, profile, e)))
+                            .forEach(commands::add);
                 }
             }
+            if (commands.isEmpty()) {
+                out.println("No running commands found for profile " + profile);
+                return;
+            }
+        }
+
+        final var single = commands.size() == 1;
+        final var futures = new ArrayList<CompletableFuture<Void>>();
+        for (final var command : commands) {
+            futures.add(stop(getPidPath(repository, profile, command), graceMillis, out,
+                    single ? "" : profile + " " + command + ": "));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    private static CompletableFuture<Void> stop(
+            @Nonnull Path pidPath,
+            @Nullable Long graceMillis,
+            @Nonnull PrintStream out,
+            @Nonnull String prefix
+    ) throws IOException {
+
+        final var pid = getPid(pidPath);
+        if (pid == null) {
+            out.println(prefix + "Process PID file not found");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final var processHandle = ProcessHandle.of(pid).orElse(null);
+        if (processHandle == null) {
+            out.println(prefix + "Process not found for PID=" + pid);
+            Files.deleteIfExists(pidPath);
+            return CompletableFuture.completedFuture(null);
+        } else if (!processHandle.isAlive()) {
+            out.println(prefix + "Process is not alive for PID=" + pid);
+            Files.deleteIfExists(pidPath);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final var started = System.nanoTime();
+        final CompletableFuture<Boolean> graceful;
+        if (!processHandle.supportsNormalTermination()) {
+            out.println(prefix + "Graceful termination not supported for PID=" + pid);
+            if (graceMillis == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            graceful = CompletableFuture.completedFuture(false);
+        } else if (processHandle.destroy()) {
+            out.println(prefix + "Process termination initiated for PID=" + pid);
+            graceful = graceMillis == null
+                    ? processHandle.onExit().thenApply(e -> true)
+                    : processHandle.onExit().thenApply(e -> true)
+                            .completeOnTimeout(false, graceMillis, TimeUnit.MILLISECONDS);
+        } else {
+            out.println(prefix + "Cannot terminate process for PID=" + pid);
+            return CompletableFuture.completedFuture(null);
         }
+
+        return graceful.thenCompose(exited -> {
+            if (exited) {
+                out.println(prefix + "Process terminated successfully for PID=" + pid + " in "
+                            + (System.nanoTime() - started) / 1_000_000 + " ms");
+                return CompletableFuture.completedFuture(null);
+            }
+            out.println(prefix + "Grace period expired, forcing termination for PID=" + pid);
+            if (!processHandle.destroyForcibly()) {
+                out.println(prefix + "Cannot terminate process for PID=" + pid);
+                return CompletableFuture.completedFuture(null);
+            }
+            return processHandle.onExit().thenApply(e -> {
+                out.println(prefix + "Process terminated forcibly for PID=" + pid + " in "
+                            + (System.nanoTime() - started) / 1_000_000 + " ms");
+                return null;
+            });
+        }).thenAccept(e -> {
+            try {
+                if (!processHandle.isAlive()) {
+                    Files.deleteIfExists(pidPath);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
     }
 }
@@ -8,6 +8,14 @@ import java.io.InputStream;
 
 public class TarBz2Extractor extends AbstractTarExtractor {
 
+    public TarBz2Extractor() {
+        // empty
+    }
+
+    public TarBz2Extractor(int writerThreads, long inFlightBytes) {
+        super(writerThreads, inFlightBytes);
+    }
+
     @Nonnull
     @Override
     protected InputStream getInputStream(@Nonnull InputStream inputStream) throws IOException {
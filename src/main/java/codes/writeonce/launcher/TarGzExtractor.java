@@ -8,6 +8,14 @@ import java.io.InputStream;
 
 public class TarGzExtractor extends AbstractTarExtractor {
 
+    public TarGzExtractor() {
+        // empty
+    }
+
+    public TarGzExtractor(int writerThreads, long inFlightBytes) {
+        super(writerThreads, inFlightBytes);
+    }
+
     @Nonnull
     @Override
     protected InputStream getInputStream(@Nonnull InputStream inputStream) throws IOException {
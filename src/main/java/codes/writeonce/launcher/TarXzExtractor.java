@@ -5,9 +5,42 @@ import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
 
 public class TarXzExtractor extends AbstractTarExtractor {
 
+    private final int decoderThreads;
+
+    public TarXzExtractor() {
+        this(0, 0);
+    }
+
+    public TarXzExtractor(int writerThreads, long inFlightBytes) {
+        this(writerThreads, inFlightBytes, 1);
+    }
+
+    public TarXzExtractor(int writerThreads, long inFlightBytes, int decoderThreads) {
+        super(writerThreads, inFlightBytes);
+        if (decoderThreads < 1) {
+            throw new IllegalArgumentException("Invalid XZ decoder thread count: " + decoderThreads);
+        }
+        this.decoderThreads = decoderThreads;
+    }
+
+    @Nonnull
+    @Override
+    protected InputStream openInputStream(@Nonnull ArchiveSource source)
+            throws IOException, ExecutionException, InterruptedException {
+
+        if (decoderThreads > 1) {
+            final var inputStream = ParallelXZInputStream.open(source.getFile(), decoderThreads);
+            if (inputStream != null) {
+                return inputStream;
+            }
+        }
+        return super.openInputStream(source);
+    }
+
     @Nonnull
     @Override
     protected InputStream getInputStream(@Nonnull InputStream inputStream) throws IOException {
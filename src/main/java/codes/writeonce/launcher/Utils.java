@@ -5,12 +5,24 @@ import codes.writeonce.repository.Repository;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 
 public final class Utils {
 
@@ -26,6 +38,168 @@ public final class Utils {
         return configProperties;
     }
 
+    public static int getIntProperty(@Nonnull Properties properties, @Nonnull String name, int defaultValue) {
+        final var value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer config property: " + name + "=" + value, e);
+        }
+    }
+
+    public static boolean getBooleanProperty(@Nonnull Properties properties, @Nonnull String name,
+            boolean defaultValue) {
+        final var value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return switch (value.trim()) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new IllegalArgumentException("Invalid boolean config property: " + name + "=" + value);
+        };
+    }
+
+    public static long getSizeProperty(@Nonnull Properties properties, @Nonnull String name, long defaultValue) {
+        final var value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return parseSize(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid size config property: " + name + "=" + value, e);
+        }
+    }
+
+    public static long getDurationProperty(@Nonnull Properties properties, @Nonnull String name,
+            long defaultValue) {
+        final var value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return parseDuration(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid duration config property: " + name + "=" + value, e);
+        }
+    }
+
+    public static long parseSize(@Nonnull String value) {
+
+        final var trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Empty size value");
+        }
+        final var suffix = Character.toUpperCase(trimmed.charAt(trimmed.length() - 1));
+        final int shift;
+        switch (suffix) {
+            case 'K' -> shift = 10;
+            case 'M' -> shift = 20;
+            case 'G' -> shift = 30;
+            case 'T' -> shift = 40;
+            default -> shift = 0;
+        }
+        final var number = shift == 0 ? trimmed : trimmed.substring(0, trimmed.length() - 1).trim();
+        final var result = Long.parseLong(number);
+        if (result < 0 || result > Long.MAX_VALUE >> shift) {
+            throw new IllegalArgumentException("Size value out of range: " + value);
+        }
+        return result << shift;
+    }
+
+    public static long parseDuration(@Nonnull String value) {
+
+        final var trimmed = value.trim();
+        try {
+            if (trimmed.endsWith("ms")) {
+                return Long.parseLong(trimmed.substring(0, trimmed.length() - 2));
+            } else if (trimmed.endsWith("s")) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else if (trimmed.endsWith("m")) {
+                return TimeUnit.MINUTES.toMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else if (trimmed.endsWith("h")) {
+                return TimeUnit.HOURS.toMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else if (trimmed.endsWith("d")) {
+                return TimeUnit.DAYS.toMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + value, e);
+        }
+    }
+
+    public static void deleteRecursively(@Nonnull Path path) throws IOException {
+
+        if (!Files.exists(path, NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        Files.walkFileTree(path, Collections.emptySet(), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final var result = super.visitFile(file, attrs);
+                Files.delete(file);
+                return result;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                final var result = super.postVisitDirectory(dir, exc);
+                Files.delete(dir);
+                return result;
+            }
+        });
+    }
+
+    @Nonnull
+    public static CompletableFuture<Void> allOfFailFast(@Nonnull Collection<? extends CompletableFuture<?>> futures) {
+
+        final var result = new CompletableFuture<Void>();
+        final var remained = new AtomicInteger(futures.size());
+        if (remained.get() == 0) {
+            result.complete(null);
+        }
+        for (final var future : futures) {
+            future.whenComplete((value, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                            ? e.getCause()
+                            : e);
+                } else if (remained.decrementAndGet() == 0) {
+                    result.complete(null);
+                }
+            });
+        }
+        return result;
+    }
+
+    public static void touch(@Nonnull Path path) throws IOException {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(path.getParent());
+            try {
+                Files.createFile(path);
+            } catch (FileAlreadyExistsException ignore) {
+                // created concurrently
+            }
+        }
+    }
+
+    public static boolean isAlive(@Nonnull Path pidPath) throws IOException {
+
+        final var pid = getPid(pidPath);
+        if (pid == null) {
+            return false;
+        }
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
     @Nonnull
     public static Path getTmpPath(@Nonnull Path path) {
         return path.getParent().resolve(path.getFileName().toString() + ".tmp");
@@ -0,0 +1,215 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static codes.writeonce.launcher.AbstractExtractor.completeFile;
+import static codes.writeonce.launcher.AbstractExtractor.newDigest;
+import static java.util.Objects.requireNonNull;
+
+public class WriterPipeline implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = BufferPool.LARGE;
+
+    private static final int ENTRY_OVERHEAD = 0x100;
+
+    private static final int MIN_BUDGET = 2 * CHUNK_SIZE;
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final boolean posix;
+
+    @Nonnull
+    private final ExtractionListener listener;
+
+    @Nonnull
+    private final Semaphore budget;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public WriterPipeline(int threads, long budgetBytes, boolean posix, @Nonnull ExtractionListener listener) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid writer thread count: " + threads);
+        }
+        final var permits = (int) Math.max(MIN_BUDGET, Math.min(Integer.MAX_VALUE, budgetBytes));
+        this.posix = posix;
+        this.listener = requireNonNull(listener);
+        this.budget = new Semaphore(permits);
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public void write(
+            @Nonnull Path path,
+            long size,
+            @Nonnull InputStream in,
+            @Nonnull Set<PosixFilePermission> permissions,
+            @Nonnull FileTime lastModified
+    ) throws IOException, InterruptedException {
+
+        if (size <= CHUNK_SIZE) {
+            final var length = (int) size;
+            final var permits = BufferPool.SHARED.sizeFor(length) + ENTRY_OVERHEAD;
+            acquire(permits);
+            final var bytes = BufferPool.SHARED.acquire(length);
+            readFully(in, bytes, length);
+            submit(() -> {
+                try {
+                    final var digest = newDigest(listener);
+                    try (var out = Files.newOutputStream(path)) {
+                        out.write(bytes, 0, length);
+                    }
+                    if (digest != null) {
+                        digest.update(bytes, 0, length);
+                    }
+                    completeFile(listener, path, size, permissions, lastModified, digest, posix);
+                } finally {
+                    BufferPool.SHARED.release(bytes);
+                    budget.release(permits);
+                }
+            });
+        } else {
+            final var chunks = new LinkedBlockingQueue<ByteBuffer>();
+            acquire(ENTRY_OVERHEAD);
+            submit(() -> {
+                try {
+                    final var digest = newDigest(listener);
+                    writeChunks(path, chunks, digest);
+                    completeFile(listener, path, size, permissions, lastModified, digest, posix);
+                } finally {
+                    budget.release(ENTRY_OVERHEAD);
+                }
+            });
+            var remained = size;
+            while (remained != 0) {
+                final var length = (int) Math.min(CHUNK_SIZE, remained);
+                acquire(BufferPool.SHARED.sizeFor(length));
+                final var bytes = BufferPool.SHARED.acquire(length);
+                readFully(in, bytes, length);
+                chunks.put(ByteBuffer.wrap(bytes, 0, length));
+                remained -= length;
+            }
+            chunks.put(END);
+        }
+    }
+
+    public void finish() throws IOException, InterruptedException {
+
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            if (failure.get() != null) {
+                executor.shutdownNow();
+            }
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeChunks(
+            @Nonnull Path path,
+            @Nonnull BlockingQueue<ByteBuffer> chunks,
+            @Nullable MessageDigest digest
+    ) throws IOException, InterruptedException {
+
+        try (var out = Files.newOutputStream(path)) {
+            while (true) {
+                final var chunk = chunks.take();
+                if (chunk == END) {
+                    break;
+                }
+                final var bytes = chunk.array();
+                try {
+                    out.write(bytes, 0, chunk.limit());
+                    if (digest != null) {
+                        digest.update(bytes, 0, chunk.limit());
+                    }
+                } finally {
+                    BufferPool.SHARED.release(bytes);
+                    budget.release(bytes.length);
+                }
+            }
+        }
+    }
+
+    private void acquire(int permits) throws IOException, InterruptedException {
+        while (!budget.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+        checkFailure();
+    }
+
+    private void submit(@Nonnull Task task) {
+        executor.execute(() -> {
+            if (failure.get() != null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void checkFailure() throws IOException {
+
+        final var e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        throw new IOException(e);
+    }
+
+    private static void readFully(@Nonnull InputStream in, @Nonnull byte[] bytes, int length) throws IOException {
+        var offset = 0;
+        while (offset != length) {
+            final var read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new IllegalArgumentException();
+            }
+            offset += read;
+        }
+    }
+
+    private interface Task {
+
+        void run() throws IOException, InterruptedException;
+    }
+}
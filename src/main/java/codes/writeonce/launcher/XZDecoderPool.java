@@ -0,0 +1,72 @@
+package codes.writeonce.launcher;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public final class XZDecoderPool {
+
+    private static final int PERMIT_SHIFT = 10;
+
+    private static final long DEFAULT_BUDGET_BYTES = 0x10000000;
+
+    public static final XZDecoderPool SHARED = new XZDecoderPool(
+            Runtime.getRuntime().availableProcessors(),
+            Math.min(DEFAULT_BUDGET_BYTES, Runtime.getRuntime().maxMemory() / 4)
+    );
+
+    private final int maxPermits;
+
+    @Nonnull
+    private final Semaphore budget;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    public XZDecoderPool(int threads, long budgetBytes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid XZ decoder thread count: " + threads);
+        }
+        this.maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes >> PERMIT_SHIFT));
+        this.budget = new Semaphore(maxPermits, true);
+        final var pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final var thread = new Thread(runnable, "xz-decoder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    public void acquire(long bytes) throws InterruptedException {
+        budget.acquire(toPermits(bytes));
+    }
+
+    public boolean tryAcquire(long bytes) {
+        try {
+            return budget.tryAcquire(toPermits(bytes), 0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release(long bytes) {
+        budget.release(toPermits(bytes));
+    }
+
+    @Nonnull
+    public <T> Future<T> submit(@Nonnull Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    private int toPermits(long bytes) {
+        return (int) Math.max(1, Math.min(maxPermits, (bytes + (1 << PERMIT_SHIFT) - 1) >> PERMIT_SHIFT));
+    }
+}
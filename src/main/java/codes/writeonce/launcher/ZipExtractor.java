@@ -1,6 +1,6 @@
 package codes.writeonce.launcher;
 
-import codes.writeonce.repository.Resource;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 
 import javax.annotation.Nonnull;
@@ -9,18 +9,36 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.attribute.PosixFilePermissions.asFileAttribute;
 
 public class ZipExtractor extends AbstractExtractor {
 
+    private final int parallelism;
+
+    public ZipExtractor() {
+        this(1);
+    }
+
+    public ZipExtractor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid zip extraction parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     @Override
-    public void extract(@Nonnull Resource resource, @Nonnull Path destinationPath)
-            throws ExecutionException, InterruptedException, IOException {
+    public void extract(
+            @Nonnull ArchiveSource source,
+            @Nonnull Path destinationPath,
+            @Nonnull ExtractionListener listener
+    ) throws ExecutionException, InterruptedException, IOException {
 
         final var rootPath = destinationPath.toRealPath();
 
@@ -31,10 +49,9 @@ public class ZipExtractor extends AbstractExtractor {
 
         final var dirs = new TreeMap<Path, DirInfo>();
         final var symlinks = new TreeMap<Path, SymlinkInfo>();
+        final var files = new ArrayList<FileInfo>();
 
-        final var bytes = new byte[0x1000000];
-
-        try (var zipFile = new ZipFile(resource.getCompletableFuture().get().toFile(), UTF_8.name())) {
+        try (var zipFile = new ZipFile(source.getFile().toFile(), UTF_8.name())) {
 
             final var entries = zipFile.getEntries();
             while (entries.hasMoreElements()) {
@@ -56,46 +73,82 @@ public class ZipExtractor extends AbstractExtractor {
                 } else if (entry.isUnixSymlink()) {
                     symlinks.put(entryPath,
                             new SymlinkInfo(Path.of(zipFile.getUnixSymlink(entry)), lastModified, permissions));
-                } else {
+                } else if (listener.isSelected(entryPath)) {
                     if (createdDirs.add(parent)) {
                         Files.createDirectories(parent);
                     }
-                    try (var in = zipFile.getInputStream(entry);
-                         var out = Files.newOutputStream(entryPath)) {
-                        while (true) {
-                            final var read = in.read(bytes, 0, bytes.length);
-                            if (read == -1) {
-                                break;
-                            }
-                            out.write(bytes, 0, read);
-                        }
-                    }
-                    if (posix) {
-                        Files.setPosixFilePermissions(entryPath, permissions);
+                    files.add(new FileInfo(entry, entryPath, lastModified, permissions));
+                }
+            }
+
+            if (parallelism == 1) {
+                final var bytes = BufferPool.SHARED.acquire(BufferPool.LARGE);
+                try {
+                    for (final var file : files) {
+                        writeFile(zipFile, file, bytes, posix, listener);
                     }
-                    Files.setLastModifiedTime(entryPath, lastModified);
+                } finally {
+                    BufferPool.SHARED.release(bytes);
                 }
+            } else {
+                writeChunked(files, file -> file.entry.getCompressedSize(), parallelism, chunk -> {
+                    final var bytes = BufferPool.SHARED.acquire(BufferPool.MEDIUM);
+                    try {
+                        for (final var file : chunk) {
+                            writeFile(zipFile, file, bytes, posix, listener);
+                        }
+                    } finally {
+                        BufferPool.SHARED.release(bytes);
+                    }
+                });
             }
         }
 
-        for (final var entry : dirs.descendingMap().entrySet()) {
-            final var path = entry.getKey();
-            final var info = entry.getValue();
-            if (posix) {
-                Files.setPosixFilePermissions(path, info.permissions);
+        applyDeferred(dirs, symlinks, createdDirs, posix, listener);
+    }
+
+    private static void writeFile(@Nonnull ZipFile zipFile, @Nonnull FileInfo file, @Nonnull byte[] bytes,
+            boolean posix, @Nonnull ExtractionListener listener) throws IOException {
+
+        final var digest = newDigest(listener);
+        var size = 0L;
+        try (var in = zipFile.getInputStream(file.entry);
+             var out = Files.newOutputStream(file.path)) {
+            while (true) {
+                final var read = in.read(bytes, 0, bytes.length);
+                if (read == -1) {
+                    break;
+                }
+                out.write(bytes, 0, read);
+                if (digest != null) {
+                    digest.update(bytes, 0, read);
+                }
+                size += read;
             }
-            Files.setLastModifiedTime(path, info.time);
         }
+        completeFile(listener, file.path, size, file.permissions, file.time, digest, posix);
+    }
 
-        for (final var entry : symlinks.descendingMap().entrySet()) {
-            final var path = entry.getKey();
-            final var info = entry.getValue();
-            final var parent = path.getParent();
-            if (createdDirs.add(parent)) {
-                Files.createDirectories(parent);
-            }
-            Files.createSymbolicLink(path, info.path, asFileAttribute(info.permissions));
-            Files.setLastModifiedTime(path, info.time);
+    private static class FileInfo {
+
+        @Nonnull
+        public final ZipArchiveEntry entry;
+
+        @Nonnull
+        public final Path path;
+
+        @Nonnull
+        public final FileTime time;
+
+        @Nonnull
+        public final Set<PosixFilePermission> permissions;
+
+        public FileInfo(@Nonnull ZipArchiveEntry entry, @Nonnull Path path, @Nonnull FileTime time,
+                @Nonnull Set<PosixFilePermission> permissions) {
+            this.entry = entry;
+            this.path = path;
+            this.time = time;
+            this.permissions = permissions;
         }
     }
 }